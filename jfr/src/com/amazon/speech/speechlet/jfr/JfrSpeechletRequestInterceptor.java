@@ -0,0 +1,149 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.jfr;
+
+import com.amazon.speech.json.SpeechletRequestEnvelope;
+import com.amazon.speech.json.SpeechletResponseEnvelope;
+import com.amazon.speech.slu.Intent;
+import com.amazon.speech.speechlet.IntentRequest;
+import com.amazon.speech.speechlet.SpeechletRequest;
+import com.amazon.speech.speechlet.interceptor.SpeechletRequestInterceptor;
+
+/**
+ * A {@link SpeechletRequestInterceptor} emitting a Java Flight Recorder event for each phase of a
+ * {@code Speechlet} invocation. A phase that fails emits no event.
+ * <p>
+ * Since the hooks of a request are invoked on the thread handling it, the events in progress are
+ * kept per thread. A single instance can be shared by several handlers.
+ */
+public final class JfrSpeechletRequestInterceptor implements SpeechletRequestInterceptor {
+    private final ThreadLocal<PhaseEvents> phaseEvents = new ThreadLocal<PhaseEvents>() {
+        @Override
+        protected PhaseEvents initialValue() {
+            return new PhaseEvents();
+        }
+    };
+
+    @Override
+    public void beforeParse(final byte[] serializedSpeechletRequest) {
+        final SpeechletRequestParseEvent event = new SpeechletRequestParseEvent();
+        event.begin();
+        event.setRequestSize(serializedSpeechletRequest.length);
+        phaseEvents.get().parseEvent = event;
+    }
+
+    @Override
+    public void afterParse(final SpeechletRequestEnvelope requestEnvelope) {
+        final PhaseEvents events = phaseEvents.get();
+        final SpeechletRequestParseEvent event = events.parseEvent;
+        events.parseEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setRequestId(requestId(requestEnvelope));
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void beforeVerify(final SpeechletRequestEnvelope requestEnvelope) {
+        final SpeechletRequestVerificationEvent event = new SpeechletRequestVerificationEvent();
+        event.begin();
+        phaseEvents.get().verificationEvent = event;
+    }
+
+    @Override
+    public void afterVerify(final SpeechletRequestEnvelope requestEnvelope) {
+        final PhaseEvents events = phaseEvents.get();
+        final SpeechletRequestVerificationEvent event = events.verificationEvent;
+        events.verificationEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setRequestId(requestId(requestEnvelope));
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void beforeDispatch(final SpeechletRequestEnvelope requestEnvelope) {
+        final SpeechletDispatchEvent event = new SpeechletDispatchEvent();
+        event.begin();
+        phaseEvents.get().dispatchEvent = event;
+    }
+
+    @Override
+    public void afterDispatch(final SpeechletRequestEnvelope requestEnvelope,
+            final SpeechletResponseEnvelope responseEnvelope) {
+        final PhaseEvents events = phaseEvents.get();
+        final SpeechletDispatchEvent event = events.dispatchEvent;
+        events.dispatchEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                final SpeechletRequest request = requestEnvelope.getRequest();
+                event.setRequestId(requestId(requestEnvelope));
+                event.setRequestType(request != null ? request.getClass().getSimpleName() : null);
+                event.setIntentName((request instanceof IntentRequest)
+                        ? intentName((IntentRequest) request) : null);
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void beforeSerialize(final SpeechletRequestEnvelope requestEnvelope,
+            final SpeechletResponseEnvelope responseEnvelope) {
+        final SpeechletResponseSerializationEvent event =
+                new SpeechletResponseSerializationEvent();
+        event.begin();
+        phaseEvents.get().serializationEvent = event;
+    }
+
+    @Override
+    public void afterSerialize(final SpeechletRequestEnvelope requestEnvelope,
+            final byte[] serializedSpeechletResponse) {
+        final PhaseEvents events = phaseEvents.get();
+        final SpeechletResponseSerializationEvent event = events.serializationEvent;
+        events.serializationEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setRequestId(requestId(requestEnvelope));
+                event.setResponseSize(serializedSpeechletResponse.length);
+                event.commit();
+            }
+        }
+    }
+
+    private static String requestId(final SpeechletRequestEnvelope requestEnvelope) {
+        final SpeechletRequest request = requestEnvelope.getRequest();
+        return (request != null) ? request.getRequestId() : null;
+    }
+
+    private static String intentName(final IntentRequest request) {
+        final Intent intent = request.getIntent();
+        return (intent != null) ? intent.getName() : null;
+    }
+
+    /**
+     * The events of the phases in progress on a thread. The event of a phase that failed is
+     * replaced when the next request starts the phase.
+     */
+    private static final class PhaseEvents {
+        private SpeechletRequestParseEvent parseEvent;
+        private SpeechletRequestVerificationEvent verificationEvent;
+        private SpeechletDispatchEvent dispatchEvent;
+        private SpeechletResponseSerializationEvent serializationEvent;
+    }
+}
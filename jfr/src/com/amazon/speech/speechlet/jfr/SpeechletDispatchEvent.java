@@ -0,0 +1,51 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a request is dispatched to the {@code Speechlet}.
+ */
+@Name("com.amazon.speech.Dispatch")
+@Label("Speechlet Dispatch")
+@Category({
+        "Alexa Skills Kit", "Speechlet"
+})
+@Enabled(false)
+@StackTrace(false)
+public final class SpeechletDispatchEvent extends Event {
+    @Label("Request Id")
+    private String requestId;
+
+    @Label("Request Type")
+    private String requestType;
+
+    @Label("Intent Name")
+    private String intentName;
+
+    public void setRequestId(final String requestId) {
+        this.requestId = requestId;
+    }
+
+    public void setRequestType(final String requestType) {
+        this.requestType = requestType;
+    }
+
+    public void setIntentName(final String intentName) {
+        this.intentName = intentName;
+    }
+}
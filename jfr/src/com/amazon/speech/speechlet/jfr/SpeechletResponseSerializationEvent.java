@@ -0,0 +1,47 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a {@code SpeechletResponseEnvelope} is verified by the response verifiers and
+ * serialized to JSON.
+ */
+@Name("com.amazon.speech.ResponseSerialization")
+@Label("Speechlet Response Serialization")
+@Category({
+        "Alexa Skills Kit", "Speechlet"
+})
+@Enabled(false)
+@StackTrace(false)
+public final class SpeechletResponseSerializationEvent extends Event {
+    @Label("Request Id")
+    private String requestId;
+
+    @Label("Response Size")
+    @DataAmount
+    private int responseSize;
+
+    public void setRequestId(final String requestId) {
+        this.requestId = requestId;
+    }
+
+    public void setResponseSize(final int responseSize) {
+        this.responseSize = responseSize;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+/**
+ * Contains the Java Flight Recorder events emitted while handling {@code Speechlet} requests, and
+ * the {@link com.amazon.speech.speechlet.jfr.JfrSpeechletRequestInterceptor} emitting them. This
+ * package requires Java 11 or later and is built separately from the rest of the SDK, which does
+ * not depend on it: register the interceptor with a
+ * {@link com.amazon.speech.speechlet.SpeechletRequestHandler} to record the events.
+ * <p>
+ * The events are disabled by default and can be enabled in a recording settings file under the
+ * {@code com.amazon.speech} names.
+ */
+package com.amazon.speech.speechlet.jfr;
@@ -1,11 +1,21 @@
 package quicknote;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import quicknote.storage.QuickNote;
+import quicknote.storage.QuickNoteCache;
 import quicknote.storage.QuickNoteDynamoDbClient;
+import quicknote.storage.QuickNoteIterator;
+import quicknote.storage.QuickNotePage;
 import quicknote.storage.QuickNoteUserDataItem;
+import quicknote.storage.QuickNoteWriteBehind;
 
 import com.amazon.speech.slu.Intent;
 import com.amazon.speech.speechlet.Session;
@@ -15,12 +25,70 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
  * The {@link QuickNoteManager} manages the interaction with QuickNoteDynamoDbClient.
  */
 public class QuickNoteManager {
+    private static final Logger log = LoggerFactory.getLogger(QuickNoteManager.class);
 
     private final QuickNoteDynamoDbClient dynamoDbClient; 
+
+    private final QuickNoteCache noteCache;
+    
+    private final QuickNoteWriteBehind writeBehind;
     
     public QuickNoteManager(final AmazonDynamoDBClient amazonDynamoDbClient) {
-    	dynamoDbClient = new QuickNoteDynamoDbClient(amazonDynamoDbClient);
-        
+    	this(new QuickNoteDynamoDbClient(amazonDynamoDbClient));
+    }
+
+    /**
+     * Creates a manager on top of a {@link QuickNoteDynamoDbClient}, which may be shared with other
+     * managers.
+     *
+     * @param dynamoDbClient
+     *            the storage client
+     */
+    public QuickNoteManager(final QuickNoteDynamoDbClient dynamoDbClient) {
+        this(dynamoDbClient, new QuickNoteCache());
+    }
+
+    /**
+     * Creates a manager on top of a {@link QuickNoteDynamoDbClient}, caching the notes of each
+     * customer in the provided {@link QuickNoteCache}.
+     *
+     * @param dynamoDbClient
+     *            the storage client
+     * @param noteCache
+     *            the cache of the notes of each customer
+     */
+    public QuickNoteManager(final QuickNoteDynamoDbClient dynamoDbClient,
+            final QuickNoteCache noteCache) {
+        this(dynamoDbClient, noteCache, null);
+    }
+
+    /**
+     * Creates a manager on top of a {@link QuickNoteDynamoDbClient} which, if a
+     * {@link QuickNoteWriteBehind} is provided, acknowledges saves and deletes of single notes
+     * once they are logged, and leaves writing them to DynamoDB to the background flushes. Reads
+     * of a customer first flush the pending writes of the customer.
+     *
+     * @param dynamoDbClient
+     *            the storage client
+     * @param noteCache
+     *            the cache of the notes of each customer
+     * @param writeBehind
+     *            the write-behind log, or null to write to DynamoDB before returning
+     */
+    public QuickNoteManager(final QuickNoteDynamoDbClient dynamoDbClient,
+            final QuickNoteCache noteCache, final QuickNoteWriteBehind writeBehind) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.noteCache = noteCache;
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Returns the cache of the notes of each customer, along with its hit and miss counts.
+     *
+     * @return the note cache
+     */
+    public QuickNoteCache getNoteCache() {
+        return noteCache;
     }
 
     /**
@@ -38,20 +106,198 @@ public class QuickNoteManager {
     	QuickNoteUserDataItem myQuickNoteUserDataItem = new QuickNoteUserDataItem();
     	
     	myQuickNoteUserDataItem.setCustomerId(myQuickNote.getCustomerId());
-    	myQuickNoteUserDataItem.setNoteName(myQuickNote.getNoteName());
+    	myQuickNoteUserDataItem.setNoteName(normalizeNoteName(myQuickNote.getNoteName()));
     	myQuickNoteUserDataItem.setNoteBody(myQuickNote.getNoteBody());
+    	myQuickNoteUserDataItem.setCreatedAt(System.currentTimeMillis());
+    	
+    	// The note replaces any item saved under the name as given, before names were normalized
+    	List<QuickNoteUserDataItem> legacyItems =
+    			findLegacyItems(myQuickNote.getCustomerId(), myQuickNote.getNoteName());
+    	
+    	if (writeBehind != null) {
+    		try{
+    			writeBehind.save(myQuickNoteUserDataItem);
+    			for (QuickNoteUserDataItem legacyItem : legacyItems) {
+    				writeBehind.delete(legacyItem);
+    			}
+    			putInCache(myQuickNoteUserDataItem, legacyItems);
+    			return myQuickNote;
+    		} catch (IOException e){
+    			log.warn("Could not log the save, saving in DynamoDB instead", e);
+    		}
+    	}
     	
         //save the note to dynamoDB
         try{	
-        	this.dynamoDbClient.saveItem(myQuickNoteUserDataItem);   	
+        	this.dynamoDbClient.saveItem(myQuickNoteUserDataItem);
+        	if (!legacyItems.isEmpty()) {
+        		this.dynamoDbClient.batchDeleteItems(legacyItems);
+        	}
+        	putInCache(myQuickNoteUserDataItem, legacyItems);
         } catch (Exception e){
+        	noteCache.invalidate(myQuickNote.getCustomerId());
         	myQuickNote.setHasError();
-        	System.out.println("Here is the exception when saving in DynamoDB: " + e);
+        	log.error("Exception when saving in DynamoDB", e);
         } 
         
         return myQuickNote;
     }
     
+    private void putInCache(QuickNoteUserDataItem item, List<QuickNoteUserDataItem> legacyItems) {
+    	if (legacyItems.isEmpty()) {
+    		noteCache.putItem(item);
+    	} else {
+    		noteCache.invalidate(item.getCustomerId());
+    	}
+    }
+    
+    /**
+     * Saves several notes with batch writes, in about one round-trip per 25 notes. Names are
+     * normalized and items saved under the names as given are replaced, as in
+     * {@link #saveNote(QuickNote)}, and all the notes get the same creation time.
+     * 
+     * @param quickNotes the notes to save, for instance imported notes
+     * @return true if all the notes were saved
+     */
+    public Boolean saveNotes(List<QuickNote> quickNotes) {
+    	
+    	final long createdAt = System.currentTimeMillis();
+    	List<QuickNoteUserDataItem> items = new ArrayList<QuickNoteUserDataItem>(quickNotes.size());
+    	List<QuickNoteUserDataItem> legacyItems = new ArrayList<QuickNoteUserDataItem>();
+    	for (QuickNote myQuickNote : quickNotes) {
+    		QuickNoteUserDataItem item = new QuickNoteUserDataItem();
+    		item.setCustomerId(myQuickNote.getCustomerId());
+    		item.setNoteName(normalizeNoteName(myQuickNote.getNoteName()));
+    		item.setNoteBody(myQuickNote.getNoteBody());
+    		item.setCreatedAt(createdAt);
+    		items.add(item);
+    		legacyItems.addAll(findLegacyItems(myQuickNote.getCustomerId(), myQuickNote.getNoteName()));
+    	}
+    	
+    	try{
+    		flushPendingWrites(items);
+    		this.dynamoDbClient.batchSaveItems(items);
+    		if (!legacyItems.isEmpty()) {
+    			this.dynamoDbClient.batchDeleteItems(legacyItems);
+    		}
+    	} catch (Exception e){
+    		log.error("Exception when saving notes in DynamoDB", e);
+    		return false;
+    	} finally {
+    		invalidateCustomers(items);
+    	}
+    	return true;
+    }
+    
+    /**
+     * Deletes several notes with batch writes, in about one round-trip per 25 notes.
+     * 
+     * @param deleteTheseNotes the notes to delete, of which only the customer and name are used
+     * @return true if all the notes were deleted
+     */
+    public Boolean deleteNotes(List<QuickNote> deleteTheseNotes) {
+    	
+    	List<QuickNoteUserDataItem> items = new ArrayList<QuickNoteUserDataItem>(deleteTheseNotes.size());
+    	for (QuickNote deleteThisNote : deleteTheseNotes) {
+    		QuickNoteUserDataItem item = new QuickNoteUserDataItem();
+    		item.setCustomerId(deleteThisNote.getCustomerId());
+    		item.setNoteName(deleteThisNote.getNoteName());
+    		items.add(item);
+    	}
+    	
+    	try{
+    		flushPendingWrites(items);
+    		this.dynamoDbClient.batchDeleteItems(items);
+    	} catch (Exception e){
+    		log.error("Exception when deleting notes in DynamoDB", e);
+    		return false;
+    	} finally {
+    		invalidateCustomers(items);
+    	}
+    	return true;
+    }
+    
+    /**
+     * Deletes all the notes of a customer, for instance when cleaning up an account. The names of
+     * the notes are queried without their bodies, then the notes are deleted with batch writes.
+     * 
+     * @param customerId
+     * @return the number of notes deleted, or -1 if they could not all be deleted
+     */
+    public int deleteAllNotes(String customerId) {
+    	
+    	try{
+    		flushPendingWrites(customerId);
+    		List<QuickNoteUserDataItem> items = this.dynamoDbClient.findAllUsersNoteNames(customerId);
+    		this.dynamoDbClient.batchDeleteItems(items);
+    		return items.size();
+    	} catch (Exception e){
+    		log.error("Exception when deleting all notes in DynamoDB", e);
+    		return -1;
+    	} finally {
+    		noteCache.invalidate(customerId);
+    	}
+    }
+    
+    /**
+     * Flushes the pending writes of a customer, so that a read sees them and a bulk write is not
+     * overwritten by them later.
+     */
+    private void flushPendingWrites(String customerId) throws IOException {
+    	if (writeBehind != null && writeBehind.hasPendingWrites(customerId)) {
+    		writeBehind.flush(customerId);
+    	}
+    }
+    
+    private void flushPendingWrites(List<QuickNoteUserDataItem> items) throws IOException {
+    	String lastCustomerId = null;
+    	for (QuickNoteUserDataItem item : items) {
+    		if (!item.getCustomerId().equals(lastCustomerId)) {
+    			lastCustomerId = item.getCustomerId();
+    			flushPendingWrites(lastCustomerId);
+    		}
+    	}
+    }
+    
+    /**
+     * Returns the cached notes of a customer, with the pending writes of the customer applied. On
+     * a cache miss, the pending writes of the customer are flushed instead, so that the notes then
+     * read from DynamoDB include them.
+     * 
+     * @param customerId
+     * @return the notes, or null if they are not cached
+     */
+    private List<QuickNoteUserDataItem> getCachedNotes(String customerId) {
+    	List<QuickNoteUserDataItem> cachedItems = noteCache.get(customerId);
+    	if (cachedItems == null) {
+    		seePendingWrites(customerId);
+    		return null;
+    	}
+    	return (writeBehind != null) ? writeBehind.applyPendingWrites(customerId, cachedItems) : cachedItems;
+    }
+    
+    /**
+     * Flushes the pending writes of a customer before a read from DynamoDB. A failed flush is only
+     * logged: the read then goes on without the pending writes.
+     */
+    private void seePendingWrites(String customerId) {
+    	try{
+    		flushPendingWrites(customerId);
+    	} catch (Exception e){
+    		log.warn("Exception when flushing pending writes", e);
+    	}
+    }
+    
+    private void invalidateCustomers(List<QuickNoteUserDataItem> items) {
+    	String lastCustomerId = null;
+    	for (QuickNoteUserDataItem item : items) {
+    		if (!item.getCustomerId().equals(lastCustomerId)) {
+    			lastCustomerId = item.getCustomerId();
+    			noteCache.invalidate(lastCustomerId);
+    		}
+    	}
+    }
+    
     /**
      * Creates and returns response for the  Yes intent.  This yes intent is the user's response to the confirmation
      * question on whether or not the selected note should be deleted.  
@@ -70,11 +316,41 @@ public class QuickNoteManager {
 		noteToDelete.setNoteBody(deleteThisNote.getNoteBody());
 		noteToDelete.setNoteName(deleteThisNote.getNoteName());
 		
+		// The note may be saved both under its normalized name and under the name as given
+		List<QuickNoteUserDataItem> otherItems = new ArrayList<QuickNoteUserDataItem>();
+		for (QuickNoteUserDataItem legacyItem :
+				findLegacyItems(deleteThisNote.getCustomerId(), deleteThisNote.getNoteName())) {
+			if (!legacyItem.getNoteName().equals(deleteThisNote.getNoteName())) {
+				otherItems.add(legacyItem);
+			}
+		}
+		String normalizedName = normalizeNoteName(deleteThisNote.getNoteName());
+		if (normalizedName != null && !normalizedName.equals(deleteThisNote.getNoteName())) {
+			otherItems.add(newKeyItem(deleteThisNote.getCustomerId(), normalizedName));
+		}
+		
+		if (writeBehind != null) {
+			try{
+				writeBehind.delete(noteToDelete);
+				for (QuickNoteUserDataItem otherItem : otherItems) {
+					writeBehind.delete(otherItem);
+				}
+				noteCache.invalidate(deleteThisNote.getCustomerId());
+				return true;
+			} catch (IOException e){
+				log.warn("Could not log the delete, deleting in DynamoDB instead", e);
+			}
+		}
+		
 		try{
 			dynamoDbClient.deleteItem(noteToDelete);
-			
+			if (!otherItems.isEmpty()) {
+				dynamoDbClient.batchDeleteItems(otherItems);
+			}
 		} catch (Exception e){
 			return false;
+		} finally {
+			noteCache.invalidate(deleteThisNote.getCustomerId());
 		}
 		
 		return true;
@@ -91,10 +367,17 @@ public class QuickNoteManager {
      */
 	public QuickNote getBestMatchNote(String findThisNoteName, String customerId) {
 
+		List<QuickNoteUserDataItem> cachedItems = getCachedNotes(customerId);
+
+    	QuickNote exactMatch = findExactMatch(findThisNoteName, customerId, cachedItems);
+    	if (exactMatch != null) {
+    		return exactMatch;
+    	}
+    	
     	List<QuickNote> itemsFound = null;
-       	itemsFound = getAllNotes(customerId);
+       	itemsFound = getNoteNames(customerId, cachedItems);
     	
-    	System.out.println("Finding note by name in the manager: " + findThisNoteName);
+    	log.debug("Finding note by name in the manager: {}", findThisNoteName);
     	
     	QuickNote bestFound = null;
        	QuickNote myFoundNote = new QuickNote();
@@ -108,10 +391,27 @@ public class QuickNoteManager {
 			return myFoundNote;
 		}
 		
-		System.out.println("Number of items found: " + itemsFound.size());
+		log.debug("Number of items found: {}", itemsFound.size());
 
 		bestFound = this.determineBestMatch(itemsFound, findThisNoteName);
 		
+		if (bestFound.getNoteBody() == null) {
+			// Only the names were queried, so the body of the best match is read now
+			try{
+				QuickNoteUserDataItem bestItem =
+						this.dynamoDbClient.loadItem(customerId, bestFound.getNoteName());
+				if (bestItem == null){
+					myFoundNote.setNoItemsFoundError();
+					return myFoundNote;
+				}
+				bestFound = toQuickNote(bestItem);
+			} catch (Exception e){
+				log.error("Exception when loading a note", e);
+				myFoundNote.setHasError();
+				return myFoundNote;
+			}
+		}
+		
 		myFoundNote.setCustomerId(bestFound.getCustomerId());
 		myFoundNote.setNoteName(bestFound.getNoteName());
 		myFoundNote.setNoteBody(bestFound.getNoteBody());
@@ -119,37 +419,249 @@ public class QuickNoteManager {
         return myFoundNote;
     }
 	
+	/**
+	 * Returns the number of notes of a customer, from the note cache if possible, and otherwise
+	 * with a count query that does not read the notes. Customers without notes are remembered in
+	 * the cache.
+	 * 
+	 * @param customerId
+	 * @return the number of notes, or -1 if they could not be counted
+	 */
 	public int getNumOfAllNotes(String customerId) {
 		
-		int numOfNotes = getAllNotes(customerId).size();
+		List<QuickNoteUserDataItem> cachedItems = getCachedNotes(customerId);
+		if (cachedItems != null) {
+			return cachedItems.size();
+		}
+		
+		int numOfNotes;
+		final long cacheVersion = noteCache.getVersion(customerId);
+		try{
+			numOfNotes = this.dynamoDbClient.countUsersItems(customerId);
+		} catch (Exception e){
+			log.error("Exception when counting notes", e);
+			return -1;
+		}
 		
+		if (numOfNotes == 0) {
+			noteCache.put(customerId, Collections.<QuickNoteUserDataItem> emptyList(), cacheVersion);
+		}
 		return numOfNotes;
 	}
 	
 	public List<QuickNote> getAllNotes(String customerId) {
 		
-		List<QuickNoteUserDataItem> itemsFound = null;
+		List<QuickNoteUserDataItem> itemsFound = getCachedNotes(customerId);
 		List<QuickNote> quickNotes = null;
 		
-		try{
-			itemsFound = this.dynamoDbClient.findAllUsersItems(customerId);
-		} catch (Exception e){
-			System.out.println("Here is the exception: " + e.getMessage());
-			return null;
+		if (itemsFound == null) {
+			final long cacheVersion = noteCache.getVersion(customerId);
+			try{
+				itemsFound = this.dynamoDbClient.findAllUsersItems(customerId);
+			} catch (Exception e){
+				log.error("Exception when reading notes", e);
+				return null;
+			}
+			noteCache.put(customerId, itemsFound, cacheVersion);
 		}
 		
 		quickNotes = new ArrayList<QuickNote>();
 		
 		for(QuickNoteUserDataItem i: itemsFound){
-			QuickNote myQuickNote = new QuickNote();
-			myQuickNote.setCustomerId(i.getCustomerId());
-			myQuickNote.setNoteBody(i.getNoteBody());
-			myQuickNote.setNoteName(i.getNoteName());
-			quickNotes.add(myQuickNote);
+			quickNotes.add(toQuickNote(i));
 		}	
 		return quickNotes;
 	}
 	
+	/**
+	 * Returns a page of the notes of a customer, in the order of their names, or after a cursor in
+	 * the order of the page that returned the cursor. Only the notes of the page are queried, so
+	 * reading the first notes of a customer costs a single query whatever the number of notes.
+	 * 
+	 * @param customerId
+	 * @param cursor the cursor of the previous page, or null for the first page
+	 * @param maxNotes the number of notes in the page
+	 * @return the page, or null if the notes could not be read
+	 */
+	public QuickNotePage listNotes(String customerId, String cursor, int maxNotes) {
+		
+		seePendingWrites(customerId);
+		
+		try{
+			return readPage(this.dynamoDbClient.iterateUsersItems(customerId, cursor, maxNotes), maxNotes);
+		} catch (Exception e){
+			log.error("Exception when listing notes", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the most recently saved notes of a customer, with a single descending query of the
+	 * recency index. Notes saved before their creation time was recorded are missing from the
+	 * index, so the notes are listed in the order of their names instead when the index does not
+	 * hold all of them. Since the index is eventually consistent, this also covers a note saved
+	 * just before.
+	 * 
+	 * @param customerId
+	 * @param numOfNotes the number of notes of the customer, as returned by {@link #getNumOfAllNotes(String)}
+	 * @param maxNotes the number of notes in the page
+	 * @return the page, or null if the notes could not be read
+	 */
+	public QuickNotePage listRecentNotes(String customerId, int numOfNotes, int maxNotes) {
+		
+		seePendingWrites(customerId);
+		
+		try{
+			// A page holding all the notes proves that they are all indexed, otherwise count them
+			if (numOfNotes <= maxNotes
+					|| this.dynamoDbClient.countRecentUsersItems(customerId) >= numOfNotes) {
+				QuickNotePage page = readPage(
+						this.dynamoDbClient.iterateRecentUsersItems(customerId, maxNotes), maxNotes);
+				if (page.getNotes().size() >= Math.min(numOfNotes, maxNotes)) {
+					return page;
+				}
+			}
+		} catch (Exception e){
+			log.warn("Exception when listing recent notes", e);
+		}
+		return listNotes(customerId, null, maxNotes);
+	}
+	
+	private static QuickNotePage readPage(QuickNoteIterator iterator, int maxNotes) {
+		List<QuickNote> quickNotes = new ArrayList<QuickNote>(maxNotes);
+		while (quickNotes.size() < maxNotes && iterator.hasNext()) {
+			quickNotes.add(toQuickNote(iterator.next()));
+		}
+		return new QuickNotePage(quickNotes, iterator.hasMore() ? iterator.getCursor() : null,
+				iterator.isNewestFirst());
+	}
+	
+	/**
+	 * Returns the notes of a customer from the note cache, or else their names only, without
+	 * reading their bodies.
+	 * 
+	 * @param customerId
+	 * @param cachedItems the notes returned by {@link #getCachedNotes(String)}
+	 * @return the notes, without bodies if they were not cached, or null if they could not be read
+	 */
+	private List<QuickNote> getNoteNames(String customerId, List<QuickNoteUserDataItem> cachedItems) {
+		
+		List<QuickNoteUserDataItem> itemsFound = cachedItems;
+		if (itemsFound == null) {
+			try{
+				itemsFound = this.dynamoDbClient.findAllUsersNoteNames(customerId);
+			} catch (Exception e){
+				log.error("Exception when querying note names", e);
+				return null;
+			}
+		}
+		
+		List<QuickNote> quickNotes = new ArrayList<QuickNote>(itemsFound.size());
+		for (QuickNoteUserDataItem i : itemsFound) {
+			quickNotes.add(toQuickNote(i));
+		}
+		return quickNotes;
+	}
+	
+	/**
+	 * Looks a note up by its name before resorting to fuzzy matching. The notes of the customer
+	 * are searched if they are cached. Otherwise the note is read by key, with the normalized name
+	 * under which notes are saved, then with the name as given, for notes saved before names were
+	 * normalized.
+	 * 
+	 * @param noteName = item name as determined by NLU/ASR
+	 * @param customerId
+	 * @param cachedItems the notes returned by {@link #getCachedNotes(String)}
+	 * @return the note with that name, or null if there is none or the lookup failed
+	 */
+	private QuickNote findExactMatch(String noteName, String customerId,
+			List<QuickNoteUserDataItem> cachedItems) {
+		String normalizedName = normalizeNoteName(noteName);
+		if (normalizedName == null || normalizedName.isEmpty()) {
+			return null;
+		}
+		
+		if (cachedItems != null) {
+			for (QuickNoteUserDataItem i : cachedItems) {
+				if (normalizedName.equals(normalizeNoteName(i.getNoteName()))) {
+					return toQuickNote(i);
+				}
+			}
+			return null;
+		}
+		
+		try{
+			QuickNoteUserDataItem item = this.dynamoDbClient.loadItem(customerId, normalizedName);
+			if (item == null && !normalizedName.equals(noteName)) {
+				item = this.dynamoDbClient.loadItem(customerId, noteName);
+			}
+			return (item != null) ? toQuickNote(item) : null;
+		} catch (Exception e){
+			log.error("Exception when loading a note by name", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the keys of the items under which a note may have been saved before names were
+	 * normalized, other than its normalized name. If the notes of the customer are cached, those
+	 * are the cached notes whose names normalize to the same name. Otherwise only the name as given
+	 * is known, when it differs from the normalized name.
+	 * 
+	 * @param customerId
+	 * @param noteName = item name as determined by NLU/ASR
+	 * @return the items holding only their keys, possibly empty
+	 */
+	private List<QuickNoteUserDataItem> findLegacyItems(String customerId, String noteName) {
+		List<QuickNoteUserDataItem> legacyItems = new ArrayList<QuickNoteUserDataItem>(1);
+		String normalizedName = normalizeNoteName(noteName);
+		if (normalizedName == null) {
+			return legacyItems;
+		}
+		
+		List<QuickNoteUserDataItem> cachedItems = noteCache.get(customerId);
+		if (cachedItems != null) {
+			for (QuickNoteUserDataItem i : cachedItems) {
+				if (!normalizedName.equals(i.getNoteName())
+						&& normalizedName.equals(normalizeNoteName(i.getNoteName()))) {
+					legacyItems.add(newKeyItem(customerId, i.getNoteName()));
+				}
+			}
+		} else if (!normalizedName.equals(noteName)) {
+			legacyItems.add(newKeyItem(customerId, noteName));
+		}
+		return legacyItems;
+	}
+	
+	private static QuickNoteUserDataItem newKeyItem(String customerId, String noteName) {
+		QuickNoteUserDataItem item = new QuickNoteUserDataItem();
+		item.setCustomerId(customerId);
+		item.setNoteName(noteName);
+		return item;
+	}
+	
+	/**
+	 * Normalizes a note name as recognized from speech, so that names differing only in case or
+	 * spacing designate the same note.
+	 * 
+	 * @param noteName
+	 * @return the trimmed, lower case name with single spaces
+	 */
+	static String normalizeNoteName(String noteName) {
+		if (noteName == null) {
+			return null;
+		}
+		return noteName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+	}
+	
+	private static QuickNote toQuickNote(QuickNoteUserDataItem item) {
+		QuickNote myQuickNote = new QuickNote();
+		myQuickNote.setCustomerId(item.getCustomerId());
+		myQuickNote.setNoteBody(item.getNoteBody());
+		myQuickNote.setNoteName(item.getNoteName());
+		return myQuickNote;
+	}
+	
 	/**
 	 * This function will return the best matching QuickNoteUserDataItem from a list of QuickNoteUserDataItems.
 	 * The best match is determined by finding the note with a title that has the lowest Levenshtein distance from the givenNoteName.
@@ -175,8 +687,6 @@ public class QuickNoteManager {
 			//run some algorithm for matching
 			int resultDistance = this.distance(checkItemName, givenNoteName);
 			
-			System.out.println(checkItemName + ". " + givenNoteName + ". with score: " + resultDistance);
-			
 		
 			if(resultDistance <= bestMatchValue){
 				bestMatchValue = resultDistance;
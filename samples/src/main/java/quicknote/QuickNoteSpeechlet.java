@@ -1,11 +1,12 @@
 package quicknote;
 
-import java.util.List;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import quicknote.storage.QuickNote;
+import quicknote.storage.QuickNoteCache;
+import quicknote.storage.QuickNotePage;
+import quicknote.storage.QuickNoteStorage;
 
 import com.amazon.speech.slu.Intent;
 import com.amazon.speech.speechlet.IntentRequest;
@@ -19,7 +20,7 @@ import com.amazon.speech.speechlet.SpeechletResponse;
 import com.amazon.speech.ui.PlainTextOutputSpeech;
 import com.amazon.speech.ui.Reprompt;
 import com.amazon.speech.ui.SimpleCard;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -28,21 +29,52 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class QuickNoteSpeechlet implements Speechlet {
     private static final Logger log = LoggerFactory.getLogger(QuickNoteSpeechlet.class);
 
-    private AmazonDynamoDBClient amazonDynamoDBClient;
-
-    private QuickNoteManager quickNoteManager;
+    private final QuickNoteManager quickNoteManager;
     
     private static final String NEW_NOTE_KEY = "NewNote";
     
     private static final String SLOT_TEXT = "Text";
+    
+    /**
+     * The session attribute holding the name of the last note read out, from which the next
+     * notes are read when the user asks for more.
+     */
+    private static final String NOTES_CURSOR_KEY = "NotesCursor";
+    
+    private static final int NOTES_PER_READOUT = 3;
+    
+    /**
+     * Converts the notes kept in the session. The mapper is thread-safe once configured.
+     */
+    private static final ObjectMapper ATTRIBUTE_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Creates the speechlet on top of the storage stack shared by the whole JVM, which is built
+     * once, before the first request is served.
+     */
+    public QuickNoteSpeechlet() {
+        this(new QuickNoteManager(QuickNoteStorage.getDynamoDbClient(), new QuickNoteCache(),
+                QuickNoteStorage.getWriteBehind()));
+    }
+
+    public QuickNoteSpeechlet(final QuickNoteManager quickNoteManager) {
+        this.quickNoteManager = quickNoteManager;
+    }
+
+    /**
+     * Reads a note kept in the session. Session attributes arrive as JSON maps, so the note is
+     * converted with a mapper shared by all the requests rather than one built per call.
+     */
+    private static QuickNote getNoteAttribute(Session session, String name) {
+        return ATTRIBUTE_MAPPER.convertValue(session.getAttribute(name), QuickNote.class);
+    }
 
     @Override
     public void onSessionStarted(final SessionStartedRequest request, final Session session)
             throws SpeechletException {
         log.info("onSessionStarted requestId={}, sessionId={}", request.getRequestId(),
                 session.getSessionId());
-
-        initializeComponents();
     }
 
     @Override
@@ -59,12 +91,10 @@ public class QuickNoteSpeechlet implements Speechlet {
             throws SpeechletException {
         log.info("onIntent requestId={}, sessionId={}", request.getRequestId(),
                 session.getSessionId());
-        initializeComponents();
         
-        ObjectMapper mapper = new ObjectMapper();
-        QuickNote myNote = mapper.convertValue(session.getAttribute("NewNote"), QuickNote.class);
+        QuickNote myNote = getNoteAttribute(session, NEW_NOTE_KEY);
         
-        QuickNote deleteNoteCandidate = mapper.convertValue(session.getAttribute("DeleteNoteCandidate"), QuickNote.class);
+        QuickNote deleteNoteCandidate = getNoteAttribute(session, "DeleteNoteCandidate");
                 
         Intent intent = request.getIntent();
         
@@ -102,11 +132,12 @@ public class QuickNoteSpeechlet implements Speechlet {
                 throw new IllegalArgumentException("Unrecognized SetFreeFormDataIntent action " + intent.getName());
         	}
         } 
-        /*
-        else if("ReadAllNotes".equals(intent.getName())){
-        	return quickNoteManager.getAllNotes(intent, session);
+        else if("ReadAllNotesIntent".equals(intent.getName())){
+        	return getAllNotes(session);
+        }
+        else if("AMAZON.MoreIntent".equals(intent.getName()) && session.getAttribute(NOTES_CURSOR_KEY) != null){
+        	return getMoreNotes(session);
         }
-        */
         else if("AMAZON.HelpIntent".equals(intent.getName())){
         	return getHelpIntentResponse(intent, session);
         }
@@ -129,16 +160,6 @@ public class QuickNoteSpeechlet implements Speechlet {
                 session.getSessionId());
     }
 
-    /**
-     * Initializes the instance components if needed.
-     */
-    private void initializeComponents() {
-        if (amazonDynamoDBClient == null) {
-            amazonDynamoDBClient = new AmazonDynamoDBClient();
-            quickNoteManager = new QuickNoteManager(amazonDynamoDBClient);
-        }
-    }
-    
     /**
      * Creates and returns response for Launch request.
      *
@@ -202,8 +223,7 @@ public class QuickNoteSpeechlet implements Speechlet {
         speechText = "OK. What is the content of your new note?";
         repromptText = "I didn't catch that. What is the content of your new note?";
         
-        ObjectMapper mapper = new ObjectMapper();
-        QuickNote myNote = mapper.convertValue(session.getAttribute("NewNote"), QuickNote.class);
+        QuickNote myNote = getNoteAttribute(session, NEW_NOTE_KEY);
         myNote.setNoteName(newNoteName);
         
         session.setAttribute(NEW_NOTE_KEY, myNote);
@@ -232,8 +252,7 @@ public class QuickNoteSpeechlet implements Speechlet {
     		return getAskSpeechletResponse(speechText, repromptText);
     	}
          
-    	ObjectMapper mapper = new ObjectMapper();
-        QuickNote myNote = mapper.convertValue(session.getAttribute("NewNote"), QuickNote.class);
+        QuickNote myNote = getNoteAttribute(session, NEW_NOTE_KEY);
         myNote.setNoteBody(newNoteBody);
         myNote.setCustomerId(session.getUser().getUserId());
         
@@ -300,51 +319,81 @@ public class QuickNoteSpeechlet implements Speechlet {
 	
 	public SpeechletResponse getAllNotes(Session session) {
 		
-		List<QuickNote> itemsFound = null;
-		
-		itemsFound = quickNoteManager.getAllNotes(session.getUser().getUserId());
+		String customerId = session.getUser().getUserId();
 		
-		if (itemsFound == null){
+		int numItemsFound = quickNoteManager.getNumOfAllNotes(customerId);
+		if (numItemsFound < 0){
 			return getTellSpeechletResponse("Error retrieving note.", false);
 		}
 		
-		int numItemsFound = itemsFound.size();
-			
-		String speechText = null;
-				
-		if (numItemsFound <= 0){
-			speechText = "I couldn't find any notes saved for you.";
+		QuickNotePage page = null;
+		if (numItemsFound > 0){
+			page = quickNoteManager.listRecentNotes(customerId, numItemsFound, NOTES_PER_READOUT);
+			if (page == null){
+				return getTellSpeechletResponse("Error retrieving note.", false);
+			}
 		}
-
-		if (numItemsFound == 1){
-			speechText = "I found one note saved for you. It is: " + itemsFound.get(0).getNoteName() +
-					", which reads: " + itemsFound.get(0).getNoteBody();
+		
+		if (page == null || page.getNotes().isEmpty()){
+			session.removeAttribute(NOTES_CURSOR_KEY);
+			return getTellSpeechletResponse("I couldn't find any notes saved for you.", true);
 		}
 		
-		if (numItemsFound == 2){
-			speechText = "I found two notes saved for you. They are: " + itemsFound.get(0).getNoteName() +
-					", which reads: " + itemsFound.get(0).getNoteBody() +
-					". And the second one is: " + itemsFound.get(1).getNoteName() + ", which reads: " +
-					itemsFound.get(1).getNoteBody() + ".";
+		String speechText = (numItemsFound == 1) ? "I found one note saved for you. " :
+				"I found " + numItemsFound + " notes saved for you. ";
+		if (numItemsFound > page.getNotes().size() && page.isNewestFirst()){
+			speechText += "The most recently added are: ";
 		}
 		
-		if (numItemsFound == 3){
-			speechText = "I found three notes saved for you. They are: " + itemsFound.get(0).getNoteName() +
-					", which reads: " + itemsFound.get(0).getNoteBody() +
-					". The second one is: " + itemsFound.get(1).getNoteName() + ", which reads: " +
-					itemsFound.get(1).getNoteBody() + ". And the third note is: " +
-					itemsFound.get(2).getNoteName() + ", which reads: " + itemsFound.get(2).getNoteName();
+		return getNotesReadoutResponse(speechText, page, session);
+	}
+	
+	/**
+	 * Reads out the next notes of the customer, from the cursor kept in the session by the
+	 * previous readout.
+	 * 
+	 * @param session
+	 * @return response for the more intent
+	 */
+	public SpeechletResponse getMoreNotes(Session session) {
+		
+		String cursor = (String) session.getAttribute(NOTES_CURSOR_KEY);
+		QuickNotePage page = quickNoteManager.listNotes(session.getUser().getUserId(), cursor,
+				NOTES_PER_READOUT);
+		
+		if (page == null){
+			return getTellSpeechletResponse("Error retrieving note.", false);
+		}
+		
+		if (page.getNotes().isEmpty()){
+			session.removeAttribute(NOTES_CURSOR_KEY);
+			return getTellSpeechletResponse("There are no more notes.", false);
+		}
+		
+		return getNotesReadoutResponse("", page, session);
+	}
+	
+	/**
+	 * Reads out a page of notes and, if more notes follow, keeps the cursor of the page in the
+	 * session and asks whether to read more.
+	 */
+	private SpeechletResponse getNotesReadoutResponse(String introduction, QuickNotePage page,
+			Session session) {
+		
+		StringBuilder speechText = new StringBuilder(introduction);
+		for (QuickNote note : page.getNotes()) {
+			speechText.append(note.getNoteName()).append(", which reads: ")
+					.append(note.getNoteBody()).append(". ");
 		}
 		
-		if (numItemsFound >= 4){
-			speechText = "I found: " + numItemsFound + "saved for you. The three most recently added are: " +
-					itemsFound.get(0).getNoteName() + ", which reads: " + itemsFound.get(0).getNoteBody() + 
-					". The second one is: " + itemsFound.get(1).getNoteName() + 
-					", which reads: " + itemsFound.get(1).getNoteBody() + ". And the third note is: " + 
-					itemsFound.get(2).getNoteName() + ", which reads: " + itemsFound.get(2).getNoteBody() + ".";
-					
+		if (page.getCursor() == null){
+			session.removeAttribute(NOTES_CURSOR_KEY);
+			return getTellSpeechletResponse(speechText.toString().trim(), true);
 		}
-		return getTellSpeechletResponse(speechText, true);
+		
+		session.setAttribute(NOTES_CURSOR_KEY, page.getCursor());
+		speechText.append("Say more to hear the next notes.");
+		return getAskSpeechletResponse(speechText.toString(), "Say more to hear the next notes.");
 	}
 	
     /**
@@ -415,8 +464,7 @@ public class QuickNoteSpeechlet implements Speechlet {
 		
 		Boolean isDeleted = false; 
 		
-		ObjectMapper mapper = new ObjectMapper();
-        QuickNote deleteThisNote = mapper.convertValue(session.getAttribute("DeleteNoteCandidate"), QuickNote.class);
+        QuickNote deleteThisNote = getNoteAttribute(session, "DeleteNoteCandidate");
 		
 		if (deleteThisNote == null){
 			return getTellSpeechletResponse("Error deleting note.", false);
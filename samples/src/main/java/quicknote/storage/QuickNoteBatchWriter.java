@@ -0,0 +1,223 @@
+package quicknote.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+/**
+ * Saves and deletes notes with BatchWriteItem, which writes up to {@value #MAX_ITEMS_PER_BATCH}
+ * items per call. The batches of a bulk write are submitted in parallel, so that writing N notes
+ * takes about N / {@value #MAX_ITEMS_PER_BATCH} round-trips divided by the number of threads.
+ * <p>
+ * Items that DynamoDB leaves unprocessed, when the table is throttled, are retried with an
+ * exponential backoff with jitter, up to {@value #MAX_ATTEMPTS} attempts per batch.
+ */
+class QuickNoteBatchWriter {
+    static final int MAX_ITEMS_PER_BATCH = 25;
+    static final int DEFAULT_THREADS = 4;
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    private final AmazonDynamoDBClient dynamoDBClient;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a writer submitting its batches to the provided executor, or writing them one after
+     * the other on the calling thread if the executor is null.
+     */
+    QuickNoteBatchWriter(final AmazonDynamoDBClient dynamoDBClient, final ExecutorService executor) {
+        this.dynamoDBClient = dynamoDBClient;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor shared by the writers of this JVM, created on first use. Its threads are
+     * daemon threads, so that they do not keep the JVM alive.
+     *
+     * @return the shared executor
+     */
+    static ExecutorService getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Saves the provided items. Of several items with the same key, only the last one is saved,
+     * since a batch may not write the same key twice.
+     *
+     * @param items
+     *            the items to save
+     * @throws AmazonClientException
+     *             if some of the items could not be saved
+     */
+    void save(final List<QuickNoteUserDataItem> items) {
+        final Map<String, WriteRequest> requests = new LinkedHashMap<String, WriteRequest>();
+        for (QuickNoteUserDataItem item : items) {
+            requests.put(keyString(item),
+                    new WriteRequest().withPutRequest(new PutRequest().withItem(attributes(item))));
+        }
+        write(new ArrayList<WriteRequest>(requests.values()));
+    }
+
+    /**
+     * Deletes the items with the keys of the provided items.
+     *
+     * @param items
+     *            the items to delete, of which only the customer ID and note name are used
+     * @throws AmazonClientException
+     *             if some of the items could not be deleted
+     */
+    void delete(final List<QuickNoteUserDataItem> items) {
+        final Map<String, WriteRequest> requests = new LinkedHashMap<String, WriteRequest>();
+        for (QuickNoteUserDataItem item : items) {
+            requests.put(keyString(item),
+                    new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key(item))));
+        }
+        write(new ArrayList<WriteRequest>(requests.values()));
+    }
+
+    private void write(final List<WriteRequest> requests) {
+        final List<List<WriteRequest>> batches = new ArrayList<List<WriteRequest>>();
+        for (int from = 0; from < requests.size(); from += MAX_ITEMS_PER_BATCH) {
+            batches.add(requests.subList(from,
+                    Math.min(from + MAX_ITEMS_PER_BATCH, requests.size())));
+        }
+
+        if (executor == null || batches.size() == 1) {
+            for (List<WriteRequest> batch : batches) {
+                writeBatch(batch);
+            }
+            return;
+        }
+
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(batches.size());
+        for (final List<WriteRequest> batch : batches) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    writeBatch(batch);
+                    return null;
+                }
+            }));
+        }
+
+        // Waits for every batch, so that no write is still in flight when a failure is reported
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = (ex.getCause() instanceof RuntimeException)
+                            ? (RuntimeException) ex.getCause()
+                            : new AmazonClientException("Batch write failed", ex.getCause());
+                }
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                future.cancel(true);
+                if (failure == null) {
+                    failure = new AmazonClientException("Interrupted during batch write", ex);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeBatch(final List<WriteRequest> batch) {
+        List<WriteRequest> pending = batch;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+
+            final BatchWriteItemResult result = dynamoDBClient.batchWriteItem(
+                    new BatchWriteItemRequest().withRequestItems(Collections.singletonMap(
+                            QuickNoteUserDataItem.TABLE_NAME, pending)));
+
+            final List<WriteRequest> unprocessed = (result.getUnprocessedItems() != null)
+                    ? result.getUnprocessedItems().get(QuickNoteUserDataItem.TABLE_NAME)
+                    : null;
+            if (unprocessed == null || unprocessed.isEmpty()) {
+                return;
+            }
+            pending = unprocessed;
+        }
+        throw new AmazonClientException(pending.size() + " of " + batch.size()
+                + " items were left unprocessed after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    private static void backoff(final int attempt) {
+        final long maxDelay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted during batch write", ex);
+        }
+    }
+
+    private static String keyString(final QuickNoteUserDataItem item) {
+        return item.getCustomerId() + '\n' + item.getNoteName();
+    }
+
+    private static Map<String, AttributeValue> key(final QuickNoteUserDataItem item) {
+        final Map<String, AttributeValue> key = new LinkedHashMap<String, AttributeValue>();
+        key.put(QuickNoteUserDataItem.CUSTOMER_ID_ATTRIBUTE, new AttributeValue(item.getCustomerId()));
+        key.put(QuickNoteUserDataItem.NOTE_NAME_ATTRIBUTE, new AttributeValue(item.getNoteName()));
+        return key;
+    }
+
+    private static Map<String, AttributeValue> attributes(final QuickNoteUserDataItem item) {
+        final Map<String, AttributeValue> attributes = key(item);
+        if (item.getNoteBody() != null) {
+            attributes.put(QuickNoteUserDataItem.NOTE_BODY_ATTRIBUTE,
+                    new AttributeValue(item.getNoteBody()));
+        }
+        if (item.getCreatedAt() != null) {
+            attributes.put(QuickNoteUserDataItem.CREATED_AT_ATTRIBUTE,
+                    new AttributeValue().withN(item.getCreatedAt().toString()));
+        }
+        return attributes;
+    }
+
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR =
+                Executors.newFixedThreadPool(DEFAULT_THREADS, new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable,
+                                "quicknote-batch-writer-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+}
@@ -0,0 +1,243 @@
+package quicknote.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of the notes of each customer, so that the turns of a session do not query the
+ * same DynamoDB partition again and again. Customers are evicted in least recently used order once
+ * the cache is full, and their notes expire after a time to live, which bounds how long changes
+ * made by other containers go unnoticed.
+ * <p>
+ * The cache is thread-safe. It counts hits, misses, evictions and expirations.
+ */
+public class QuickNoteCache {
+    public static final int DEFAULT_MAX_CUSTOMERS = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE_SECONDS = 120;
+
+    private final int maxCustomers;
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> entries;
+
+    /**
+     * The version of the last write to the notes of each recently written customer, so that notes
+     * loaded while a write to the same customer was in progress are not cached over it.
+     */
+    private final Map<String, Long> writeVersions;
+
+    /**
+     * Incremented by every write to stamp {@link #writeVersions}.
+     */
+    private long lastWriteVersion;
+
+    /**
+     * The highest write version of the customers dropped from {@link #writeVersions}, which stands
+     * in for the write version of every customer not found there.
+     */
+    private long droppedWriteVersion;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    public QuickNoteCache() {
+        this(DEFAULT_MAX_CUSTOMERS, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a cache holding the notes of up to {@code maxCustomers} customers.
+     *
+     * @param maxCustomers
+     *            the number of customers whose notes are kept
+     * @param timeToLive
+     *            how long notes are kept after being loaded
+     * @param unit
+     *            the unit of {@code timeToLive}
+     */
+    public QuickNoteCache(final int maxCustomers, final long timeToLive, final TimeUnit unit) {
+        if (maxCustomers <= 0) {
+            throw new IllegalArgumentException("maxCustomers must be positive");
+        }
+        this.maxCustomers = maxCustomers;
+        this.timeToLiveMillis = unit.toMillis(timeToLive);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > QuickNoteCache.this.maxCustomers) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.writeVersions = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                if (size() > QuickNoteCache.this.maxCustomers) {
+                    droppedWriteVersion = Math.max(droppedWriteVersion, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached notes of a customer.
+     *
+     * @param customerId
+     *            the customer
+     * @return an unmodifiable list of the notes, or {@code null} if they are not cached
+     */
+    public synchronized List<QuickNoteUserDataItem> get(final String customerId) {
+        final Entry entry = lookup(customerId);
+        return (entry != null) ? entry.items : null;
+    }
+
+    /**
+     * Returns the number of cached notes of a customer. Customers known to have no notes are
+     * cached with an empty list, so that they are not counted again on every launch.
+     *
+     * @param customerId
+     *            the customer
+     * @return the number of notes, or -1 if they are not cached
+     */
+    public synchronized int getNoteCount(final String customerId) {
+        final Entry entry = lookup(customerId);
+        return (entry != null) ? entry.items.size() : -1;
+    }
+
+    private Entry lookup(final String customerId) {
+        final Entry entry = entries.get(customerId);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > timeToLiveMillis) {
+            entries.remove(customerId);
+            expirationCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry;
+    }
+
+    /**
+     * Returns the version to pass to {@link #put(String, List, long)} once the notes of a customer
+     * have been loaded.
+     *
+     * @param customerId
+     *            the customer
+     * @return the current version of the notes of the customer
+     */
+    public synchronized long getVersion(final String customerId) {
+        final Long writeVersion = writeVersions.get(customerId);
+        return (writeVersion != null) ? writeVersion : droppedWriteVersion;
+    }
+
+    /**
+     * Caches the notes of a customer, loaded from DynamoDB, unless the notes of the customer have
+     * been written to since {@code loadVersion} was read, in which case they may already be stale.
+     * Writes to the notes of other customers do not prevent caching.
+     *
+     * @param customerId
+     *            the customer
+     * @param items
+     *            all the notes of the customer
+     * @param loadVersion
+     *            the value of {@link #getVersion(String)} before the notes were loaded
+     */
+    public synchronized void put(final String customerId, final List<QuickNoteUserDataItem> items,
+            final long loadVersion) {
+        if (loadVersion == getVersion(customerId)) {
+            entries.put(customerId, new Entry(new ArrayList<QuickNoteUserDataItem>(items),
+                    System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Writes a saved note through to the cached notes of its customer, replacing the note with the
+     * same name if any. Nothing is cached if the notes of the customer are not.
+     *
+     * @param item
+     *            the saved note
+     */
+    public synchronized void putItem(final QuickNoteUserDataItem item) {
+        writeVersions.put(item.getCustomerId(), ++lastWriteVersion);
+        final Entry entry = entries.get(item.getCustomerId());
+        if (entry == null) {
+            return;
+        }
+
+        final List<QuickNoteUserDataItem> items = new ArrayList<QuickNoteUserDataItem>(entry.items);
+        boolean replaced = false;
+        for (int i = 0; i < items.size() && !replaced; i++) {
+            if (items.get(i).getNoteName().equals(item.getNoteName())) {
+                items.set(i, item);
+                replaced = true;
+            }
+        }
+        if (!replaced) {
+            items.add(item);
+        }
+        entries.put(item.getCustomerId(), new Entry(items, entry.loadedAt));
+    }
+
+    /**
+     * Drops the cached notes of a customer.
+     *
+     * @param customerId
+     *            the customer
+     */
+    public synchronized void invalidate(final String customerId) {
+        writeVersions.put(customerId, ++lastWriteVersion);
+        entries.remove(customerId);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getExpirationCount() {
+        return expirationCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QuickNoteCache[size=" + entries.size() + ", hits=" + hitCount + ", misses="
+                + missCount + ", evictions=" + evictionCount + ", expirations=" + expirationCount
+                + "]";
+    }
+
+    private static final class Entry {
+        private final List<QuickNoteUserDataItem> items;
+        private final long loadedAt;
+
+        private Entry(final List<QuickNoteUserDataItem> items, final long loadedAt) {
+            this.items = Collections.unmodifiableList(items);
+            this.loadedAt = loadedAt;
+        }
+    }
+}
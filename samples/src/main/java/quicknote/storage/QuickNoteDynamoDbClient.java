@@ -1,19 +1,57 @@
 package quicknote.storage;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
 
 /**
  * Client for DynamoDB persistence layer for the Quick Note skill.
  */
 public class QuickNoteDynamoDbClient {
+    /**
+     * The mapper is thread-safe and caches the model of the mapped classes, so a single instance
+     * is shared by all the calls.
+     */
+    private final DynamoDBMapper mapper;
+
     private final AmazonDynamoDBClient dynamoDBClient;
 
+    private final QuickNoteBatchWriter batchWriter;
+
     public QuickNoteDynamoDbClient(final AmazonDynamoDBClient dynamoDBClient) {
+        this(dynamoDBClient, QuickNoteBatchWriter.getDefaultExecutor());
+    }
+
+    /**
+     * Creates a client submitting the batches of bulk writes to the provided executor.
+     * 
+     * @param dynamoDBClient
+     * @param batchExecutor the executor of the batches, or null to write them one after the other
+     */
+    public QuickNoteDynamoDbClient(final AmazonDynamoDBClient dynamoDBClient,
+            final ExecutorService batchExecutor) {
         this.dynamoDBClient = dynamoDBClient;
+        this.mapper = new DynamoDBMapper(dynamoDBClient);
+        this.batchWriter = new QuickNoteBatchWriter(dynamoDBClient, batchExecutor);
     }
 
     /**
@@ -26,7 +64,6 @@ public class QuickNoteDynamoDbClient {
      * @return item found in database
      */
     public QuickNoteUserDataItem loadItem(String userId, String noteName) {
-        DynamoDBMapper mapper = createDynamoDBMapper();
         QuickNoteUserDataItem item = mapper.load(QuickNoteUserDataItem.class, userId, noteName);
 
         return item;
@@ -36,8 +73,6 @@ public class QuickNoteDynamoDbClient {
      * Finds all items from DynamoDB for a given customer ID.
      */
     public List<QuickNoteUserDataItem> findAllUsersItems(String userId) {
-    	DynamoDBMapper mapper = createDynamoDBMapper();
-    
     	QuickNoteUserDataItem replyKey = new QuickNoteUserDataItem();
     	replyKey.setCustomerId(userId);
 
@@ -49,30 +84,167 @@ public class QuickNoteDynamoDbClient {
     	return latestReplies;
     }
 
+    /**
+     * Iterates over the items of a given customer ID in the order of their names, querying one page
+     * of items at a time, when the previous page has been consumed. An iteration resumed from a
+     * cursor keeps the order of the iteration that returned the cursor.
+     * 
+     * @param userId
+     * @param cursor the cursor of a previous iteration, or null to start from the first item
+     * @param pageSize the number of items to query at a time
+     * @return the iterator
+     */
+    public QuickNoteIterator iterateUsersItems(String userId, String cursor, int pageSize) {
+        return new QuickNoteIterator(mapper, userId, false, cursor, pageSize);
+    }
+
+    /**
+     * Iterates over the items of a given customer ID most recent first, with a descending query of
+     * the {@value QuickNoteUserDataItem#CREATED_AT_INDEX} index. Items saved before the creation
+     * time was recorded are not returned.
+     * 
+     * @param userId
+     * @param pageSize the number of items to query at a time
+     * @return the iterator
+     */
+    public QuickNoteIterator iterateRecentUsersItems(String userId, int pageSize) {
+        return new QuickNoteIterator(mapper, userId, true, null, pageSize);
+    }
+
+    /**
+     * Finds the names of all the items from DynamoDB for a given customer ID. The query projects
+     * the items on their name, so that the read capacity and the size of the response depend on
+     * the number of notes rather than on the length of their bodies.
+     * 
+     * @param userId
+     * @return items holding only the customer ID and the note name
+     */
+    public List<QuickNoteUserDataItem> findAllUsersNoteNames(String userId) {
+        final Map<String, AttributeValue> values =
+                Collections.singletonMap(":customerId", new AttributeValue(userId));
+        final QueryRequest request = new QueryRequest()
+                .withTableName(QuickNoteUserDataItem.TABLE_NAME)
+                .withKeyConditionExpression(
+                        QuickNoteUserDataItem.CUSTOMER_ID_ATTRIBUTE + " = :customerId")
+                .withExpressionAttributeValues(values)
+                .withProjectionExpression(QuickNoteUserDataItem.NOTE_NAME_ATTRIBUTE);
+
+        final List<QuickNoteUserDataItem> items = new ArrayList<QuickNoteUserDataItem>();
+        QueryResult result;
+        do {
+            result = dynamoDBClient.query(request);
+            for (Map<String, AttributeValue> attributes : result.getItems()) {
+                QuickNoteUserDataItem item = new QuickNoteUserDataItem();
+                item.setCustomerId(userId);
+                item.setNoteName(attributes.get(QuickNoteUserDataItem.NOTE_NAME_ATTRIBUTE).getS());
+                items.add(item);
+            }
+            request.setExclusiveStartKey(result.getLastEvaluatedKey());
+        } while (result.getLastEvaluatedKey() != null);
+
+        return items;
+    }
+
+    /**
+     * Counts the items of a given customer ID with a {@code COUNT} query, which returns the
+     * number of items without reading them out.
+     */
+    public int countUsersItems(String userId) {
+        QuickNoteUserDataItem hashKey = new QuickNoteUserDataItem();
+        hashKey.setCustomerId(userId);
+
+        DynamoDBQueryExpression<QuickNoteUserDataItem> queryExpression =
+                new DynamoDBQueryExpression<QuickNoteUserDataItem>().withHashKeyValues(hashKey);
+
+        return mapper.count(QuickNoteUserDataItem.class, queryExpression);
+    }
+
+    /**
+     * Counts the items of a given customer ID in the {@value QuickNoteUserDataItem#CREATED_AT_INDEX}
+     * index, that is the items which {@link #iterateRecentUsersItems(String, int)} returns.
+     */
+    public int countRecentUsersItems(String userId) {
+        QuickNoteUserDataItem hashKey = new QuickNoteUserDataItem();
+        hashKey.setCustomerId(userId);
+
+        DynamoDBQueryExpression<QuickNoteUserDataItem> queryExpression =
+                new DynamoDBQueryExpression<QuickNoteUserDataItem>()
+                        .withHashKeyValues(hashKey)
+                        .withIndexName(QuickNoteUserDataItem.CREATED_AT_INDEX)
+                        .withConsistentRead(false);
+
+        return mapper.count(QuickNoteUserDataItem.class, queryExpression);
+    }
+
+    /**
+     * Creates the table of the notes along with its {@value QuickNoteUserDataItem#CREATED_AT_INDEX}
+     * index, for instance in DynamoDB Local when the client is pointed at it with the
+     * {@value QuickNoteStorage#ENDPOINT_PROPERTY} setting. The index projects all the attributes,
+     * so that the most recent notes are read without going back to the table.
+     * 
+     * @param readCapacityUnits the read capacity of the table and of the index
+     * @param writeCapacityUnits the write capacity of the table and of the index
+     */
+    public void createTable(long readCapacityUnits, long writeCapacityUnits) {
+        final ProvisionedThroughput throughput =
+                new ProvisionedThroughput(readCapacityUnits, writeCapacityUnits);
+
+        final GlobalSecondaryIndex createdAtIndex = new GlobalSecondaryIndex()
+                .withIndexName(QuickNoteUserDataItem.CREATED_AT_INDEX)
+                .withKeySchema(
+                        new KeySchemaElement(QuickNoteUserDataItem.CUSTOMER_ID_ATTRIBUTE, KeyType.HASH),
+                        new KeySchemaElement(QuickNoteUserDataItem.CREATED_AT_ATTRIBUTE, KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.ALL))
+                .withProvisionedThroughput(throughput);
+
+        final CreateTableRequest request = new CreateTableRequest()
+                .withTableName(QuickNoteUserDataItem.TABLE_NAME)
+                .withKeySchema(
+                        new KeySchemaElement(QuickNoteUserDataItem.CUSTOMER_ID_ATTRIBUTE, KeyType.HASH),
+                        new KeySchemaElement(QuickNoteUserDataItem.NOTE_NAME_ATTRIBUTE, KeyType.RANGE))
+                .withAttributeDefinitions(
+                        new AttributeDefinition(QuickNoteUserDataItem.CUSTOMER_ID_ATTRIBUTE, ScalarAttributeType.S),
+                        new AttributeDefinition(QuickNoteUserDataItem.NOTE_NAME_ATTRIBUTE, ScalarAttributeType.S),
+                        new AttributeDefinition(QuickNoteUserDataItem.CREATED_AT_ATTRIBUTE, ScalarAttributeType.N))
+                .withGlobalSecondaryIndexes(createdAtIndex)
+                .withProvisionedThroughput(throughput);
+
+        dynamoDBClient.createTable(request);
+    }
+
     /**
      * Stores an item to DynamoDB.
      * 
      * @param tableItem
      */
     public void saveItem(final QuickNoteUserDataItem tableItem) {
-        DynamoDBMapper mapper = createDynamoDBMapper();
         mapper.save(tableItem);
     } 
-    
 
     /**
-     * Creates a {@link DynamoDBMapper} using the default configurations.
+     * Stores items to DynamoDB with BatchWriteItem, 25 items per call and several calls in
+     * parallel. Unprocessed items are retried with backoff.
      * 
-     * @return
+     * @param tableItems
+     * @throws AmazonClientException if some of the items could not be stored
      */
-    private DynamoDBMapper createDynamoDBMapper() {
-        return new DynamoDBMapper(dynamoDBClient);
+    public void batchSaveItems(final List<QuickNoteUserDataItem> tableItems) {
+        batchWriter.save(tableItems);
     }
 
+    /**
+     * Deletes items from DynamoDB with BatchWriteItem, 25 items per call and several calls in
+     * parallel. Unprocessed items are retried with backoff.
+     * 
+     * @param tableItems the items to delete, of which only the keys are used
+     * @throws AmazonClientException if some of the items could not be deleted
+     */
+    public void batchDeleteItems(final List<QuickNoteUserDataItem> tableItems) {
+        batchWriter.delete(tableItems);
+    }
+    
+
 	public void deleteItem(QuickNoteUserDataItem deleteThisNote) {
-		DynamoDBMapper mapper = createDynamoDBMapper();
-		
-		System.out.println(deleteThisNote.getCustomerId() + " " + deleteThisNote.getNoteBody() + " " + deleteThisNote.getNoteName());
 		mapper.delete(deleteThisNote);	
 	}
 }
@@ -0,0 +1,159 @@
+package quicknote.storage;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Iterates over the notes of a customer, querying DynamoDB one page at a time and only when the
+ * notes of the previous page have been consumed. Callers that need only the first notes therefore
+ * issue a single query of a single page.
+ * <p>
+ * Notes are returned in the order of their names, or most recent first through the
+ * {@value QuickNoteUserDataItem#CREATED_AT_INDEX} index. The iteration can be resumed later from a
+ * cursor, which encodes the order and the key of the last note returned.
+ */
+public class QuickNoteIterator implements Iterator<QuickNoteUserDataItem> {
+    private static final String NAME_CURSOR_PREFIX = "N:";
+    private static final String RECENT_CURSOR_PREFIX = "R:";
+
+    private final DynamoDBMapper mapper;
+    private final String customerId;
+    private final int pageSize;
+    private final boolean newestFirst;
+
+    private Map<String, AttributeValue> exclusiveStartKey;
+    private List<QuickNoteUserDataItem> page = Collections.emptyList();
+    private int pageIndex;
+    private boolean lastPage;
+    private QuickNoteUserDataItem lastItem;
+
+    /**
+     * Creates an iterator starting with the first note in the provided order, or resuming after the
+     * provided cursor, in the order of the cursor.
+     */
+    QuickNoteIterator(final DynamoDBMapper mapper, final String customerId,
+            final boolean newestFirst, final String cursor, final int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.mapper = mapper;
+        this.customerId = customerId;
+        this.pageSize = pageSize;
+
+        if (cursor == null) {
+            this.newestFirst = newestFirst;
+        } else if (cursor.startsWith(RECENT_CURSOR_PREFIX)) {
+            final int separator = cursor.indexOf(':', RECENT_CURSOR_PREFIX.length());
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor " + cursor);
+            }
+            this.newestFirst = true;
+            this.exclusiveStartKey = key(cursor.substring(separator + 1));
+            this.exclusiveStartKey.put(QuickNoteUserDataItem.CREATED_AT_ATTRIBUTE,
+                    new AttributeValue().withN(
+                            cursor.substring(RECENT_CURSOR_PREFIX.length(), separator)));
+        } else {
+            // Cursors without prefix are the names returned before notes could be read by recency
+            this.newestFirst = false;
+            this.exclusiveStartKey = key(cursor.startsWith(NAME_CURSOR_PREFIX)
+                    ? cursor.substring(NAME_CURSOR_PREFIX.length()) : cursor);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (pageIndex >= page.size() && !lastPage) {
+            fetchPage();
+        }
+        return pageIndex < page.size();
+    }
+
+    @Override
+    public QuickNoteUserDataItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        lastItem = page.get(pageIndex++);
+        return lastItem;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns whether more notes may follow the ones returned so far, without querying DynamoDB.
+     * DynamoDB may report more notes when the last page was exactly full, in which case resuming
+     * returns no notes.
+     *
+     * @return true unless all the notes of the customer have been returned
+     */
+    public boolean hasMore() {
+        return pageIndex < page.size() || !lastPage;
+    }
+
+    /**
+     * Returns the cursor from which to resume the iteration after the notes returned so far.
+     *
+     * @return the cursor, or null if no note was returned
+     */
+    public String getCursor() {
+        if (lastItem == null) {
+            return null;
+        } else if (newestFirst) {
+            return RECENT_CURSOR_PREFIX + lastItem.getCreatedAt() + ":" + lastItem.getNoteName();
+        } else {
+            return NAME_CURSOR_PREFIX + lastItem.getNoteName();
+        }
+    }
+
+    /**
+     * Returns whether the notes are returned most recent first.
+     *
+     * @return true if the notes are read through the recency index
+     */
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+
+    private void fetchPage() {
+        final QuickNoteUserDataItem hashKey = new QuickNoteUserDataItem();
+        hashKey.setCustomerId(customerId);
+
+        final DynamoDBQueryExpression<QuickNoteUserDataItem> queryExpression =
+                new DynamoDBQueryExpression<QuickNoteUserDataItem>()
+                        .withHashKeyValues(hashKey)
+                        .withLimit(pageSize)
+                        .withExclusiveStartKey(exclusiveStartKey);
+        if (newestFirst) {
+            // Global secondary indexes only support eventually consistent reads
+            queryExpression.withIndexName(QuickNoteUserDataItem.CREATED_AT_INDEX)
+                    .withScanIndexForward(false)
+                    .withConsistentRead(false);
+        }
+
+        final QueryResultPage<QuickNoteUserDataItem> result =
+                mapper.queryPage(QuickNoteUserDataItem.class, queryExpression);
+        page = result.getResults();
+        pageIndex = 0;
+        exclusiveStartKey = result.getLastEvaluatedKey();
+        lastPage = (exclusiveStartKey == null);
+    }
+
+    private Map<String, AttributeValue> key(final String noteName) {
+        final Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put(QuickNoteUserDataItem.CUSTOMER_ID_ATTRIBUTE, new AttributeValue(customerId));
+        key.put(QuickNoteUserDataItem.NOTE_NAME_ATTRIBUTE, new AttributeValue(noteName));
+        return key;
+    }
+}
@@ -0,0 +1,41 @@
+package quicknote.storage;
+
+import java.util.List;
+
+/**
+ * A page of the notes of a customer, along with the cursor from which to read the next page.
+ */
+public class QuickNotePage {
+    private final List<QuickNote> notes;
+    private final String cursor;
+    private final boolean newestFirst;
+
+    public QuickNotePage(final List<QuickNote> notes, final String cursor,
+            final boolean newestFirst) {
+        this.notes = notes;
+        this.cursor = cursor;
+        this.newestFirst = newestFirst;
+    }
+
+    public List<QuickNote> getNotes() {
+        return notes;
+    }
+
+    /**
+     * Returns the cursor to pass when reading the next page.
+     *
+     * @return the cursor, or null if this is the last page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Returns whether the notes are the most recent ones, rather than the first ones by name.
+     *
+     * @return true if the notes are ordered most recent first
+     */
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+}
@@ -0,0 +1,180 @@
+package quicknote.storage;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+
+/**
+ * Holds the storage stack shared by all the requests served by this JVM: a single
+ * {@link AmazonDynamoDBClient}, with its HTTP connection pool, a single
+ * {@link QuickNoteDynamoDbClient}, with its mapper, and optionally a single
+ * {@link QuickNoteWriteBehind}. All are thread-safe and built once, when this class is
+ * initialized.
+ * <p>
+ * The client can be tuned with system properties or, for AWS Lambda, with environment variables:
+ * <ul>
+ * <li>{@value #MAX_CONNECTIONS_PROPERTY} or {@code QUICKNOTE_DYNAMODB_MAX_CONNECTIONS}: the size
+ * of the connection pool</li>
+ * <li>{@value #CONNECTION_TIMEOUT_PROPERTY} or {@code QUICKNOTE_DYNAMODB_CONNECTION_TIMEOUT}: the
+ * timeout for opening a connection, in milliseconds</li>
+ * <li>{@value #SOCKET_TIMEOUT_PROPERTY} or {@code QUICKNOTE_DYNAMODB_SOCKET_TIMEOUT}: the timeout
+ * for reading from a connection, in milliseconds</li>
+ * <li>{@value #MAX_ERROR_RETRIES_PROPERTY} or {@code QUICKNOTE_DYNAMODB_MAX_ERROR_RETRIES}: the
+ * number of times a failed call is retried, with the DynamoDB backoff strategy</li>
+ * <li>{@value #ENDPOINT_PROPERTY} or {@code QUICKNOTE_DYNAMODB_ENDPOINT}: the endpoint of DynamoDB,
+ * for instance {@code http://localhost:8000} for DynamoDB Local, instead of the endpoint of the
+ * default region</li>
+ * <li>{@value #WRITE_BEHIND_LOG_PROPERTY} or {@code QUICKNOTE_WRITE_BEHIND_LOG_FILE}: the
+ * write-ahead log of the write-behind mode, which is off unless this is set</li>
+ * <li>{@value #WRITE_BEHIND_FLUSH_INTERVAL_PROPERTY} or
+ * {@code QUICKNOTE_WRITE_BEHIND_FLUSH_INTERVAL}: the delay between two flushes of the write-behind
+ * log, in milliseconds</li>
+ * </ul>
+ */
+public final class QuickNoteStorage {
+    private static final Logger log = LoggerFactory.getLogger(QuickNoteStorage.class);
+
+    public static final String MAX_CONNECTIONS_PROPERTY = "quicknote.dynamodb.maxConnections";
+    public static final String CONNECTION_TIMEOUT_PROPERTY =
+            "quicknote.dynamodb.connectionTimeout";
+    public static final String SOCKET_TIMEOUT_PROPERTY = "quicknote.dynamodb.socketTimeout";
+    public static final String MAX_ERROR_RETRIES_PROPERTY = "quicknote.dynamodb.maxErrorRetries";
+    public static final String ENDPOINT_PROPERTY = "quicknote.dynamodb.endpoint";
+    public static final String WRITE_BEHIND_LOG_PROPERTY = "quicknote.writeBehind.logFile";
+    public static final String WRITE_BEHIND_FLUSH_INTERVAL_PROPERTY =
+            "quicknote.writeBehind.flushInterval";
+
+    /**
+     * A Lambda container serves one request at a time, so a small pool is enough; servlet
+     * containers should raise it to the number of request threads.
+     */
+    private static final int DEFAULT_MAX_CONNECTIONS = 10;
+    private static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 1000;
+    private static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 2000;
+    private static final int DEFAULT_MAX_ERROR_RETRIES = 3;
+
+    private static final AmazonDynamoDBClient AMAZON_DYNAMODB_CLIENT = createClient();
+
+    private static final QuickNoteDynamoDbClient DYNAMODB_CLIENT =
+            new QuickNoteDynamoDbClient(AMAZON_DYNAMODB_CLIENT);
+
+    private static final QuickNoteWriteBehind WRITE_BEHIND = createWriteBehind();
+
+    private QuickNoteStorage() {
+    }
+
+    /**
+     * Returns the shared {@link QuickNoteDynamoDbClient}.
+     *
+     * @return the client
+     */
+    public static QuickNoteDynamoDbClient getDynamoDbClient() {
+        return DYNAMODB_CLIENT;
+    }
+
+    /**
+     * Returns the shared {@link AmazonDynamoDBClient}.
+     *
+     * @return the client
+     */
+    public static AmazonDynamoDBClient getAmazonDynamoDbClient() {
+        return AMAZON_DYNAMODB_CLIENT;
+    }
+
+    /**
+     * Returns the shared {@link QuickNoteWriteBehind}, if the write-behind mode is on.
+     *
+     * @return the write-behind log, or null if saves are written to DynamoDB synchronously
+     */
+    public static QuickNoteWriteBehind getWriteBehind() {
+        return WRITE_BEHIND;
+    }
+
+    private static AmazonDynamoDBClient createClient() {
+        final AmazonDynamoDBClient client = new AmazonDynamoDBClient(createClientConfiguration());
+        final String endpoint = getSetting(ENDPOINT_PROPERTY);
+        if (endpoint != null) {
+            log.info("Using DynamoDB endpoint {}", endpoint);
+            client.setEndpoint(endpoint.trim());
+        }
+        return client;
+    }
+
+    private static QuickNoteWriteBehind createWriteBehind() {
+        final String logFile = getSetting(WRITE_BEHIND_LOG_PROPERTY);
+        if (logFile == null) {
+            return null;
+        }
+        final int flushInterval = getSetting(WRITE_BEHIND_FLUSH_INTERVAL_PROPERTY,
+                (int) QuickNoteWriteBehind.DEFAULT_FLUSH_INTERVAL_MILLIS);
+
+        try {
+            log.info("Writing behind through {}, flushed every {}ms", logFile, flushInterval);
+            return new QuickNoteWriteBehind(DYNAMODB_CLIENT, Paths.get(logFile.trim()),
+                    Math.max(flushInterval, 1), TimeUnit.MILLISECONDS);
+        } catch (IOException ex) {
+            log.error("Could not open {}, writing to DynamoDB synchronously", logFile, ex);
+            return null;
+        }
+    }
+
+    private static ClientConfiguration createClientConfiguration() {
+        final int maxConnections = getSetting(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS);
+        final int connectionTimeout =
+                getSetting(CONNECTION_TIMEOUT_PROPERTY, DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+        final int socketTimeout = getSetting(SOCKET_TIMEOUT_PROPERTY, DEFAULT_SOCKET_TIMEOUT_MILLIS);
+        final int maxErrorRetries = getSetting(MAX_ERROR_RETRIES_PROPERTY, DEFAULT_MAX_ERROR_RETRIES);
+
+        log.info("Creating DynamoDB client with maxConnections={}, connectionTimeout={}ms, "
+                + "socketTimeout={}ms, maxErrorRetries={}", maxConnections, connectionTimeout,
+                socketTimeout, maxErrorRetries);
+
+        return new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout(connectionTimeout)
+                .withSocketTimeout(socketTimeout)
+                .withRetryPolicy(PredefinedRetryPolicies
+                        .getDynamoDBDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetries));
+    }
+
+    /**
+     * Reads an integer setting, falling back to the provided default if it is missing or invalid.
+     */
+    private static int getSetting(final String property, final int defaultValue) {
+        final String value = getSetting(property);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            final int setting = Integer.parseInt(value.trim());
+            if (setting >= 0) {
+                return setting;
+            }
+        } catch (NumberFormatException ex) {
+            // Falls through to the warning below
+        }
+        log.warn("Ignoring invalid value {} for {}, using {}", value, property, defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Reads a setting from the provided system property, or from the environment variable of the
+     * same name in upper case with underscores.
+     */
+    private static String getSetting(final String property) {
+        final String value = System.getProperty(property);
+        if (value != null) {
+            return value;
+        }
+        return System.getenv(property.replace('.', '_')
+                .replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+    }
+}
@@ -2,6 +2,8 @@ package quicknote.storage;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexRangeKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 
@@ -9,18 +11,32 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 /**
  * Model representing an item of the QuickNoteUserData table in DynamoDB for the QuickNote
  * skill.
+ * <p>
+ * The {@value #CREATED_AT_INDEX} global secondary index keys the notes of a customer by the time
+ * they were saved, so that the most recent notes are read with a single descending query. Notes
+ * saved before the {@value #CREATED_AT_ATTRIBUTE} attribute existed are missing from the index.
  */
-@DynamoDBTable(tableName = "QuickNoteUserData")
+@DynamoDBTable(tableName = QuickNoteUserDataItem.TABLE_NAME)
 public class QuickNoteUserDataItem implements Note{
     
+    public static final String TABLE_NAME = "QuickNoteUserData";
+    public static final String CUSTOMER_ID_ATTRIBUTE = "CustomerId";
+    public static final String NOTE_NAME_ATTRIBUTE = "NoteName";
+    public static final String NOTE_BODY_ATTRIBUTE = "NoteBody";
+    public static final String CREATED_AT_ATTRIBUTE = "CreatedAt";
+    public static final String CREATED_AT_INDEX = "CustomerId-CreatedAt-index";
+    
     private String customerId;
 
     private String noteName;
     
     private String noteBody;
     
+    private Long createdAt;
+    
     
-    @DynamoDBHashKey(attributeName = "CustomerId")
+    @DynamoDBHashKey(attributeName = CUSTOMER_ID_ATTRIBUTE)
+    @DynamoDBIndexHashKey(attributeName = CUSTOMER_ID_ATTRIBUTE, globalSecondaryIndexName = CREATED_AT_INDEX)
     public String getCustomerId() {
         return customerId;
     }
@@ -28,7 +44,7 @@ public class QuickNoteUserDataItem implements Note{
         this.customerId = customerId;
     }
     
-    @DynamoDBRangeKey(attributeName = "NoteName")
+    @DynamoDBRangeKey(attributeName = NOTE_NAME_ATTRIBUTE)
     public String getNoteName() {
     	return noteName;
     }
@@ -36,11 +52,25 @@ public class QuickNoteUserDataItem implements Note{
     	this.noteName = noteName;
     }
     
-    @DynamoDBAttribute(attributeName = "NoteBody")
+    @DynamoDBAttribute(attributeName = NOTE_BODY_ATTRIBUTE)
     public String getNoteBody() {
     	return noteBody;
     }
     public void setNoteBody(String noteBody) {
     	this.noteBody = noteBody;
     }
+    
+    /**
+     * Returns when the note was saved. Saving a note under an existing name replaces the previous
+     * note, so the time is set on every save.
+     * 
+     * @return the milliseconds since the epoch, or null for notes saved before the attribute existed
+     */
+    @DynamoDBIndexRangeKey(attributeName = CREATED_AT_ATTRIBUTE, globalSecondaryIndexName = CREATED_AT_INDEX)
+    public Long getCreatedAt() {
+    	return createdAt;
+    }
+    public void setCreatedAt(Long createdAt) {
+    	this.createdAt = createdAt;
+    }
 }
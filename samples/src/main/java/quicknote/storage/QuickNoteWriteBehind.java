@@ -0,0 +1,499 @@
+package quicknote.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Acknowledges note saves and deletes once they are appended to a local write-ahead log, and
+ * writes them to DynamoDB later, in batches, from a background thread. The log is forced to disk
+ * on every append, and holds only the writes that have not reached DynamoDB yet: it is rewritten
+ * after every flush. Writes still in the log when the JVM stops are replayed by the next instance
+ * opened on the same file.
+ * <p>
+ * Only the last write of each note is kept pending, so a note saved several times before a flush
+ * is written once. Writes are durable only as long as the log file survives: on AWS Lambda,
+ * {@code /tmp} is lost with its container.
+ */
+public class QuickNoteWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(QuickNoteWriteBehind.class);
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final long NO_CREATED_AT = Long.MIN_VALUE;
+
+    private final QuickNoteDynamoDbClient dynamoDbClient;
+    private final Path logPath;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Guards {@link #pending}, {@link #flushingCustomers} and {@link #logChannel}. Flushes take
+     * this lock only while reading and updating the pending writes, so appends do not wait for
+     * DynamoDB.
+     */
+    private final Object lock = new Object();
+
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<String, PendingWrite>();
+
+    /**
+     * The customers whose writes are being flushed. A flush of a customer waits for the flush in
+     * progress for the same customer only, so that the writes of a note reach DynamoDB in order.
+     */
+    private final Set<String> flushingCustomers = new HashSet<String>();
+    private FileChannel logChannel;
+    private boolean closed;
+
+    /**
+     * Opens the write-ahead log at the provided path, replays the writes it holds, and starts
+     * flushing them to DynamoDB every {@code flushInterval}.
+     *
+     * @param dynamoDbClient
+     *            the client writing to DynamoDB
+     * @param logPath
+     *            the write-ahead log, created if it does not exist
+     * @param flushInterval
+     *            the delay between two flushes
+     * @param unit
+     *            the unit of {@code flushInterval}
+     * @throws IOException
+     *             if the log cannot be read or opened for writing
+     */
+    public QuickNoteWriteBehind(final QuickNoteDynamoDbClient dynamoDbClient, final Path logPath,
+            final long flushInterval, final TimeUnit unit) throws IOException {
+        this.dynamoDbClient = dynamoDbClient;
+        this.logPath = logPath;
+
+        replay();
+        this.logChannel = openLog();
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "quicknote-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush(null);
+                } catch (Exception ex) {
+                    log.warn("Flushing pending writes failed, retrying later", ex);
+                }
+            }
+        }, flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * Logs the save of a note, replacing any pending write of the same note.
+     *
+     * @param item
+     *            the note to save
+     * @throws IOException
+     *             if the save could not be logged, in which case it is not pending
+     */
+    public void save(final QuickNoteUserDataItem item) throws IOException {
+        append(new PendingWrite(SAVE, item));
+    }
+
+    /**
+     * Logs the delete of a note, replacing any pending write of the same note.
+     *
+     * @param item
+     *            the note to delete, of which only the customer ID and note name are used
+     * @throws IOException
+     *             if the delete could not be logged, in which case it is not pending
+     */
+    public void delete(final QuickNoteUserDataItem item) throws IOException {
+        append(new PendingWrite(DELETE, item));
+    }
+
+    /**
+     * Returns whether writes of the provided customer have not reached DynamoDB yet.
+     *
+     * @param customerId
+     *            the customer
+     * @return true if writes of the customer are pending
+     */
+    public boolean hasPendingWrites(final String customerId) {
+        synchronized (lock) {
+            for (PendingWrite write : pending.values()) {
+                if (write.item.getCustomerId().equals(customerId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Applies the pending writes of a customer to notes of the customer that may not include them,
+     * such as cached notes, so that reading them does not require a flush.
+     *
+     * @param customerId
+     *            the customer
+     * @param items
+     *            notes of the customer
+     * @return the notes with the pending saves of the customer in place of the notes of the same
+     *         name and without the notes pending deletion, or {@code items} if no writes of the
+     *         customer are pending
+     */
+    public List<QuickNoteUserDataItem> applyPendingWrites(final String customerId,
+            final List<QuickNoteUserDataItem> items) {
+        final Map<String, PendingWrite> writes = new LinkedHashMap<String, PendingWrite>();
+        synchronized (lock) {
+            for (PendingWrite write : pending.values()) {
+                if (write.item.getCustomerId().equals(customerId)) {
+                    writes.put(write.item.getNoteName(), write);
+                }
+            }
+        }
+        if (writes.isEmpty()) {
+            return items;
+        }
+
+        final List<QuickNoteUserDataItem> applied =
+                new ArrayList<QuickNoteUserDataItem>(items.size() + writes.size());
+        for (QuickNoteUserDataItem item : items) {
+            final PendingWrite write = writes.remove(item.getNoteName());
+            if (write == null) {
+                applied.add(item);
+            } else if (write.type == SAVE) {
+                applied.add(write.item);
+            }
+        }
+        for (PendingWrite write : writes.values()) {
+            if (write.type == SAVE) {
+                applied.add(write.item);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Returns the number of writes that have not reached DynamoDB yet.
+     *
+     * @return the number of pending writes
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes the pending writes of a customer, or of all the customers, to DynamoDB with batch
+     * writes, then removes them from the log. Reads of a customer that cannot be served from the
+     * note cache call this first, so that they see the writes of the customer. A flush of a customer waits only for a flush in progress
+     * that holds writes of the same customer, while a flush of all the customers waits for every
+     * flush in progress.
+     *
+     * @param customerId
+     *            the customer whose writes to flush, or null to flush all the pending writes
+     * @throws IOException
+     *             if the log could not be rewritten, in which case the writes have reached
+     *             DynamoDB, or if the flush was interrupted while waiting for another one
+     */
+    public void flush(final String customerId) throws IOException {
+        final List<PendingWrite> writes = new ArrayList<PendingWrite>();
+        final Set<String> customers = new HashSet<String>();
+        synchronized (lock) {
+            while (customerId == null ? !flushingCustomers.isEmpty()
+                    : flushingCustomers.contains(customerId)) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a flush");
+                }
+            }
+            for (PendingWrite write : pending.values()) {
+                if (customerId == null || write.item.getCustomerId().equals(customerId)) {
+                    writes.add(write);
+                    customers.add(write.item.getCustomerId());
+                }
+            }
+            if (writes.isEmpty()) {
+                return;
+            }
+            flushingCustomers.addAll(customers);
+        }
+
+        try {
+            final List<QuickNoteUserDataItem> saves = new ArrayList<QuickNoteUserDataItem>();
+            final List<QuickNoteUserDataItem> deletes = new ArrayList<QuickNoteUserDataItem>();
+            for (PendingWrite write : writes) {
+                (write.type == SAVE ? saves : deletes).add(write.item);
+            }
+            if (!saves.isEmpty()) {
+                dynamoDbClient.batchSaveItems(saves);
+            }
+            if (!deletes.isEmpty()) {
+                dynamoDbClient.batchDeleteItems(deletes);
+            }
+
+            synchronized (lock) {
+                for (PendingWrite write : writes) {
+                    // A write of the same note logged during the flush stays pending
+                    if (pending.get(write.key) == write) {
+                        pending.remove(write.key);
+                    }
+                }
+                if (!closed) {
+                    rewriteLog();
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                flushingCustomers.removeAll(customers);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops the background flushes and flushes the pending writes. Writes that cannot be flushed
+     * stay in the log, to be replayed by the next instance.
+     */
+    public void close() {
+        flusher.shutdown();
+        try {
+            flush(null);
+        } catch (Exception ex) {
+            log.warn("Flushing pending writes on close failed, {} writes left in {}",
+                    getPendingCount(), logPath, ex);
+        }
+        synchronized (lock) {
+            closed = true;
+            try {
+                logChannel.close();
+            } catch (IOException ex) {
+                log.warn("Closing {} failed", logPath, ex);
+            }
+        }
+    }
+
+    private void append(final PendingWrite write) throws IOException {
+        final ByteBuffer record = ByteBuffer.wrap(encode(write));
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Write-behind log " + logPath + " is closed");
+            }
+            reopenLogIfClosed();
+            final long position = logChannel.size();
+            try {
+                while (record.hasRemaining()) {
+                    logChannel.write(record);
+                }
+                logChannel.force(false);
+            } catch (IOException ex) {
+                // Drops a partial record, which would hide the records appended after it
+                logChannel.truncate(position);
+                throw ex;
+            }
+            pending.put(write.key, write);
+        }
+    }
+
+    /**
+     * Replaces the log with the pending writes, through a temporary file so that a crash leaves
+     * either the old or the new log. Called with {@link #lock} held.
+     */
+    private void rewriteLog() throws IOException {
+        reopenLogIfClosed();
+        if (pending.isEmpty()) {
+            logChannel.truncate(0);
+            logChannel.force(false);
+            return;
+        }
+
+        final Path tempPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (PendingWrite write : pending.values()) {
+                final ByteBuffer record = ByteBuffer.wrap(encode(write));
+                while (record.hasRemaining()) {
+                    tempChannel.write(record);
+                }
+            }
+            tempChannel.force(false);
+        }
+
+        logChannel.close();
+        try {
+            Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // If the move failed, the old log still holds all the pending writes
+            logChannel = openLog();
+        }
+    }
+
+    /**
+     * Reopens the log if a failed rewrite could not reopen it. Called with {@link #lock} held.
+     */
+    private void reopenLogIfClosed() throws IOException {
+        if (!logChannel.isOpen()) {
+            logChannel = openLog();
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Loads the writes of an existing log into {@link #pending}. A record cut short by a crash
+     * during an append ends the log, and is truncated away.
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final InputStream stream = Channels.newInputStream(channel);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            while (true) {
+                final PendingWrite write;
+                try {
+                    final int length = in.readInt();
+                    final long checksum = in.readLong();
+                    if (length < 0 || length > channel.size()) {
+                        break;
+                    }
+                    final byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (checksum(payload) != checksum) {
+                        break;
+                    }
+                    write = decode(payload);
+                    validLength += 12 + length;
+                } catch (EOFException ex) {
+                    break;
+                }
+                pending.put(write.key, write);
+            }
+
+            if (validLength < channel.size()) {
+                log.warn("Truncating {} bytes of incomplete records from {}",
+                        channel.size() - validLength, logPath);
+                channel.truncate(validLength);
+                channel.force(false);
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} pending writes from {}", pending.size(), logPath);
+        }
+    }
+
+    /**
+     * Encodes a write as a record made of the length of the payload, its CRC-32 and the payload.
+     */
+    private static byte[] encode(final PendingWrite write) throws IOException {
+        final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(128);
+        final DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeByte(write.type);
+        writeString(payload, write.item.getCustomerId());
+        writeString(payload, write.item.getNoteName());
+        writeString(payload, write.item.getNoteBody());
+        payload.writeLong(write.item.getCreatedAt() != null
+                ? write.item.getCreatedAt() : NO_CREATED_AT);
+        payload.flush();
+
+        final byte[] bytes = payloadBytes.toByteArray();
+        final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(12 + bytes.length);
+        final DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(bytes.length);
+        record.writeLong(checksum(bytes));
+        record.write(bytes);
+        record.flush();
+        return recordBytes.toByteArray();
+    }
+
+    private static PendingWrite decode(final byte[] bytes) throws IOException {
+        final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bytes));
+        final byte type = payload.readByte();
+        final QuickNoteUserDataItem item = new QuickNoteUserDataItem();
+        item.setCustomerId(readString(payload));
+        item.setNoteName(readString(payload));
+        item.setNoteBody(readString(payload));
+        final long createdAt = payload.readLong();
+        item.setCreatedAt(createdAt != NO_CREATED_AT ? createdAt : null);
+        return new PendingWrite(type, item);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static final class PendingWrite {
+        private final byte type;
+        private final QuickNoteUserDataItem item;
+        private final String key;
+
+        private PendingWrite(final byte type, final QuickNoteUserDataItem item) {
+            this.type = type;
+            this.item = item;
+            this.key = item.getCustomerId() + '\n' + item.getNoteName();
+        }
+    }
+}
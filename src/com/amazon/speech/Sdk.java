@@ -220,6 +220,24 @@ public final class Sdk {
     public static final String TIMESTAMP_TOLERANCE_SYSTEM_PROPERTY =
             "com.amazon.speech.speechlet.servlet.timestampTolerance";
 
+    /**
+     * <p>
+     * The name of the system property that can be used to enable replay protection in the
+     * {@link com.amazon.speech.speechlet.servlet.SpeechletServlet}. When set to {@code true} and a
+     * timestamp tolerance is configured with {@link #TIMESTAMP_TOLERANCE_SYSTEM_PROPERTY}, requests
+     * whose request ID has already been received within the tolerance are rejected. Replay
+     * protection is disabled by default.
+     * </p>
+     *
+     * <p>
+     * If you are starting your service from Eclipse, add the following to the VM arguments for the
+     * run configuration of Launcher:
+     * </p>
+     * {@code -Dcom.amazon.speech.speechlet.servlet.replayProtection=true}
+     */
+    public static final String REPLAY_PROTECTION_SYSTEM_PROPERTY =
+            "com.amazon.speech.speechlet.servlet.replayProtection";
+
     private Sdk() {
     }
 }
@@ -0,0 +1,300 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.json;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@code Map} backed by a single array holding its keys and values side by side, in insertion
+ * order. Lookups scan the array, which for the handful of slots or session attributes found in a
+ * request is as fast as hashing, while a map holds two objects instead of one per entry plus a
+ * table.
+ * <p>
+ * The map accepts {@code null} keys and values. It can be made unmodifiable in place with
+ * {@link #makeUnmodifiable()}, which avoids wrapping it in another object. Like {@code HashMap}, it
+ * is not thread-safe.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class ArrayMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = -2310950420981305527L;
+
+    private static final Object[] EMPTY = new Object[0];
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private Object[] table = EMPTY;
+    private int size;
+    private boolean unmodifiable;
+    private transient int modCount;
+    private transient Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * Constructs an empty map. No array is allocated until the first entry is added.
+     */
+    public ArrayMap() {
+    }
+
+    /**
+     * Constructs an empty map with room for the provided number of entries.
+     *
+     * @param capacity
+     *            the number of entries the map can hold before growing
+     */
+    public ArrayMap(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        table = (capacity > 0) ? new Object[capacity * 2] : EMPTY;
+    }
+
+    /**
+     * Constructs a map holding the entries of the provided map, in its iteration order.
+     *
+     * @param map
+     *            the entries to copy
+     */
+    public ArrayMap(final Map<? extends K, ? extends V> map) {
+        if (!map.isEmpty()) {
+            table = new Object[map.size() * 2];
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                table[size * 2] = entry.getKey();
+                table[size * 2 + 1] = entry.getValue();
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Makes this map unmodifiable. Any later attempt at modifying it throws an
+     * {@code UnsupportedOperationException}.
+     *
+     * @return this map
+     */
+    public ArrayMap<K, V> makeUnmodifiable() {
+        unmodifiable = true;
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        final int index = indexOf(key);
+        return (index >= 0) ? (V) table[index + 1] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(final K key, final V value) {
+        checkModifiable();
+        final int index = indexOf(key);
+        if (index >= 0) {
+            final V previous = (V) table[index + 1];
+            table[index + 1] = value;
+            return previous;
+        }
+
+        if (size * 2 == table.length) {
+            final Object[] newTable =
+                    new Object[(size == 0) ? DEFAULT_CAPACITY * 2 : table.length * 2];
+            System.arraycopy(table, 0, newTable, 0, size * 2);
+            table = newTable;
+        }
+        table[size * 2] = key;
+        table[size * 2 + 1] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(final Object key) {
+        checkModifiable();
+        final int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) table[index + 1];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        for (int i = 0; i < size * 2; i++) {
+            table[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private int indexOf(final Object key) {
+        for (int i = 0; i < size * 2; i += 2) {
+            final Object candidate = table[i];
+            if (candidate == key || (key != null && key.equals(candidate))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(final int index) {
+        System.arraycopy(table, index + 2, table, index, size * 2 - index - 2);
+        size--;
+        table[size * 2] = null;
+        table[size * 2 + 1] = null;
+        modCount++;
+    }
+
+    private void checkModifiable() {
+        if (unmodifiable) {
+            throw new UnsupportedOperationException("This map is unmodifiable");
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            ArrayMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size * 2;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size * 2) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += 2;
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            checkModifiable();
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * An entry writing through to the table. Replacing a value does not change the structure of
+     * the map, so entries remain valid until an entry is added or removed.
+     */
+    private final class Entry implements Map.Entry<K, V> {
+        private final int index;
+
+        private Entry(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            return (K) table[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) table[index + 1];
+        }
+
+        @Override
+        public V setValue(final V value) {
+            checkModifiable();
+            final V previous = getValue();
+            table[index + 1] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), entry.getKey())
+                    && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.MapType;
+
+/**
+ * Converts session attributes between the generic form produced by deserializing a request, made
+ * of maps, lists and scalar values, and the types used by a {@code Speechlet}. A single Jackson
+ * {@code ObjectMapper} is shared by all conversions.
+ * <p>
+ * The {@link AttributesDeserializer} deserializes the attributes of a request into a
+ * {@link SessionAttributeMap}, which remembers the raw JSON of each attribute.
+ * <p>
+ * Large attributes can be encoded in a compact form: their JSON is deflated and sent as a base64
+ * string starting with {@value #COMPACT_PREFIX}. Compact attributes are usually several times
+ * smaller than their JSON, at the cost of compressing them for each response in which they are
+ * modified, and of inflating them when they are first accessed.
+ *
+ * @see com.amazon.speech.speechlet.Session#getAttribute(String, Class)
+ */
+public final class SessionAttributeCodec {
+    /**
+     * The name of the deserialization context attribute holding the serialized request, when it
+     * is deserialized from a byte array.
+     */
+    static final String SOURCE_ATTRIBUTE = SessionAttributeCodec.class.getName() + ".source";
+
+    /**
+     * The prefix of the string holding an attribute encoded in the compact form.
+     */
+    public static final String COMPACT_PREFIX = "~ask.z1:";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * A Jackson {@code ObjectMapper} configured for our conversion use case.
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    static {
+        /*
+         * Attributes written by an older version of a Speechlet may contain fields its current
+         * version no longer knows about, they will just be ignored.
+         */
+        OBJECT_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    private static final MapType ATTRIBUTES_TYPE = OBJECT_MAPPER.getTypeFactory().constructMapType(
+            ArrayMap.class, String.class, Object.class);
+
+    private SessionAttributeCodec() {
+    }
+
+    /**
+     * Converts an attribute value to the provided type. Values already of that type are returned
+     * as is.
+     *
+     * @param value
+     *            the attribute value
+     * @param type
+     *            the type to convert to
+     * @return the converted value, or {@code null} if the value is {@code null}
+     * @throws IllegalArgumentException
+     *             if the value cannot be converted to the provided type
+     */
+    public static <T> T decode(final Object value, final Class<T> type) {
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        return OBJECT_MAPPER.convertValue(value, type);
+    }
+
+    /**
+     * Returns whether the provided attribute value is encoded in the compact form.
+     *
+     * @param value
+     *            the attribute value
+     * @return true if the value is a compact string
+     */
+    public static boolean isCompact(final Object value) {
+        return value instanceof String && ((String) value).startsWith(COMPACT_PREFIX);
+    }
+
+    /**
+     * Encodes an attribute value in the compact form.
+     *
+     * @param value
+     *            the attribute value
+     * @return the compact string
+     * @throws IllegalArgumentException
+     *             if the value cannot be serialized
+     */
+    public static String encodeCompact(final Object value) {
+        final byte[] json;
+        try {
+            json = OBJECT_MAPPER.writeValueAsBytes(value);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not serialize attribute value", ex);
+        }
+
+        // Favor speed, the attribute is compressed on the response path
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 16);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return COMPACT_PREFIX + Base64.encodeBase64String(out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decodes an attribute value encoded in the compact form into maps, lists and scalar values.
+     *
+     * @param value
+     *            the compact string
+     * @return the decoded value
+     * @throws IllegalArgumentException
+     *             if the value is not a valid compact string
+     */
+    public static Object decodeCompact(final String value) {
+        if (!isCompact(value)) {
+            throw new IllegalArgumentException("Attribute value is not in the compact form");
+        }
+
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(Base64.decodeBase64(value.substring(COMPACT_PREFIX.length())));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(value.length() * 4);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compact attribute value");
+                }
+                out.write(buffer, 0, length);
+            }
+            return OBJECT_MAPPER.readValue(out.toByteArray(), Object.class);
+        } catch (DataFormatException | IOException ex) {
+            throw new IllegalArgumentException("Could not decode compact attribute value", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Serializes session attributes to JSON. Raw JSON values are written as is.
+     *
+     * @param attributes
+     *            the session attributes
+     * @return the JSON of the attributes
+     * @throws IllegalArgumentException
+     *             if the attributes cannot be serialized
+     */
+    public static byte[] writeAttributes(final Map<String, Object> attributes) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(attributes);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not serialize session attributes", ex);
+        }
+    }
+
+    /**
+     * Deserializes session attributes written by {@link #writeAttributes(Map)} into maps, lists and
+     * scalar values. Each call returns new instances, which keep the order of the attributes.
+     *
+     * @param json
+     *            the JSON of the attributes
+     * @return the deserialized attributes
+     * @throws IllegalArgumentException
+     *             if the JSON is not valid
+     */
+    public static Map<String, Object> readAttributes(final byte[] json) {
+        try {
+            return OBJECT_MAPPER.readValue(json, ATTRIBUTES_TYPE);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not deserialize session attributes", ex);
+        }
+    }
+
+    /**
+     * Deserializes the attributes of a session into a {@link SessionAttributeMap}. The location of
+     * each attribute is captured when the request is deserialized from a byte array.
+     */
+    public static final class AttributesDeserializer extends JsonDeserializer<Map<String, Object>> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> deserialize(final JsonParser parser,
+                final DeserializationContext context) throws IOException {
+            final Object source = context.getAttribute(SOURCE_ATTRIBUTE);
+            final SessionAttributeMap attributes =
+                    new SessionAttributeMap((source instanceof byte[]) ? (byte[]) source : null);
+
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                return (Map<String, Object>) context.handleUnexpectedToken(Map.class, parser);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+                final long start = parser.getTokenLocation().getByteOffset();
+                final Object value = context.readValue(parser, Object.class);
+                final long end = parser.getCurrentLocation().getByteOffset();
+                attributes.put(name, value, (int) start, (int) end);
+            }
+            return attributes;
+        }
+    }
+}
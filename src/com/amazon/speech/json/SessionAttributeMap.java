@@ -0,0 +1,98 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.json;
+
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+/**
+ * The attributes of a session as deserialized from a request. Along with the deserialized values,
+ * the map remembers where the JSON of each attribute is located in the serialized request, so that
+ * attributes left unchanged by a {@code Speechlet} can be written back to the response as is,
+ * instead of being serialized again.
+ * <p>
+ * This class does not track modifications itself: the {@link com.amazon.speech.speechlet.Session}
+ * owning it forgets the raw JSON of an attribute whenever the attribute may have been modified.
+ */
+public final class SessionAttributeMap extends ArrayMap<String, Object> {
+    private static final long serialVersionUID = 4713925093860371542L;
+
+    private final transient byte[] source;
+    private transient ArrayMap<String, int[]> rawLocations;
+
+    SessionAttributeMap(final byte[] source) {
+        this.source = source;
+    }
+
+    /**
+     * Adds a deserialized attribute along with the location of its JSON in the serialized request.
+     */
+    void put(final String name, final Object value, final int start, final int end) {
+        put(name, value);
+        if (source != null && start >= 0 && end > start && end <= source.length) {
+            if (rawLocations == null) {
+                rawLocations = new ArrayMap<>();
+            }
+            rawLocations.put(name, new int[] {
+                    start,
+                    end
+            });
+        }
+    }
+
+    /**
+     * Returns the JSON of the provided attribute as found in the serialized request.
+     *
+     * @param name
+     *            the name of the attribute
+     * @return the raw JSON, or {@code null} if it is unknown or has been forgotten
+     */
+    public RawValue getRawValue(final String name) {
+        if (rawLocations == null) {
+            return null;
+        }
+        final int[] location = rawLocations.get(name);
+        if (location == null) {
+            return null;
+        }
+        return new RawValue(new String(source, location[0], location[1] - location[0],
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns whether the raw JSON of any attribute is still known.
+     *
+     * @return true if at least one attribute has raw JSON
+     */
+    public boolean hasRawValues() {
+        return rawLocations != null && !rawLocations.isEmpty();
+    }
+
+    /**
+     * Forgets the raw JSON of the provided attribute, once it may have been modified.
+     *
+     * @param name
+     *            the name of the attribute
+     */
+    public void forgetRawValue(final String name) {
+        if (rawLocations != null) {
+            rawLocations.remove(name);
+        }
+    }
+
+    /**
+     * Forgets the raw JSON of all the attributes.
+     */
+    public void forgetRawValues() {
+        rawLocations = null;
+    }
+}
@@ -19,6 +19,7 @@ import com.amazon.speech.speechlet.SpeechletRequest;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 /**
  * Envelope to wrap the various parameters of a {@code Speechlet} invocation.
@@ -40,6 +41,8 @@ public final class SpeechletRequestEnvelope {
         OBJECT_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         OBJECT_MAPPER.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
     }
+    private static final ObjectReader OBJECT_READER = OBJECT_MAPPER
+            .readerFor(SpeechletRequestEnvelope.class);
 
     // ----------
     // Attributes
@@ -145,7 +148,9 @@ public final class SpeechletRequestEnvelope {
      *             if deserialization fails.
      */
     public static SpeechletRequestEnvelope fromJson(final byte[] json) throws IOException {
-        return OBJECT_MAPPER.readValue(json, SpeechletRequestEnvelope.class);
+        // The bytes let the session attributes keep their raw JSON
+        return OBJECT_READER.withAttribute(SessionAttributeCodec.SOURCE_ATTRIBUTE, json).readValue(
+                json);
     }
 
     /**
@@ -0,0 +1,163 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.json;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.amazon.speech.speechlet.SpeechletRequest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The result of a lightweight streaming scan of a serialized {@link SpeechletRequestEnvelope}.
+ * The scan extracts the fields needed to route or reject a request without binding the whole
+ * envelope, and stops as soon as they are found.
+ * <p>
+ * The scanned values are not authoritative: they must still be verified against the fully bound
+ * envelope, for instance with an
+ * {@link com.amazon.speech.speechlet.verifier.ApplicationIdSpeechletRequestVerifier}.
+ */
+public final class SpeechletRequestPreScan {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String applicationId;
+    private String requestId;
+    private String timestamp;
+
+    private SpeechletRequestPreScan() {
+    }
+
+    /**
+     * Returns the value of {@code session.application.applicationId}.
+     *
+     * @return the application ID, or {@code null} if missing
+     */
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    /**
+     * Returns the value of {@code request.requestId}.
+     *
+     * @return the request ID, or {@code null} if missing
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Returns the value of {@code request.timestamp}, parsed with {@link TimestampCodec}.
+     *
+     * @return the request timestamp, or {@code null} if missing or not in a supported format
+     */
+    public Date getTimestamp() {
+        final long millis = getTimestampMillis();
+        return (millis != SpeechletRequest.NO_TIMESTAMP) ? new Date(millis) : null;
+    }
+
+    /**
+     * Returns the value of {@code request.timestamp} in milliseconds since the epoch, parsed with
+     * {@link TimestampCodec}.
+     *
+     * @return the request timestamp, or {@link SpeechletRequest#NO_TIMESTAMP} if missing or not
+     *         in a supported format
+     */
+    public long getTimestampMillis() {
+        if (timestamp == null) {
+            return SpeechletRequest.NO_TIMESTAMP;
+        }
+
+        try {
+            return TimestampCodec.parse(timestamp);
+        } catch (IllegalArgumentException ex) {
+            return SpeechletRequest.NO_TIMESTAMP;
+        }
+    }
+
+    /**
+     * Scans a serialized {@code SpeechletRequestEnvelope}. The byte array must be UTF-8 encoded.
+     *
+     * @param json
+     *            the bytes to scan
+     * @return the scanned values
+     * @throws IOException
+     *             if the bytes are not valid JSON
+     */
+    public static SpeechletRequestPreScan scan(final byte[] json) throws IOException {
+        final SpeechletRequestPreScan preScan = new SpeechletRequestPreScan();
+        boolean sessionScanned = false;
+        boolean requestScanned = false;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (!(sessionScanned && requestScanned)
+                        && parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.START_OBJECT && "session".equals(fieldName)) {
+                        preScan.scanSession(parser);
+                        sessionScanned = true;
+                    } else if (token == JsonToken.START_OBJECT && "request".equals(fieldName)) {
+                        preScan.scanRequest(parser);
+                        requestScanned = true;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return preScan;
+    }
+
+    /**
+     * Scans the {@code session} object the parser is positioned on, up to its end.
+     */
+    private void scanSession(final JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && "application".equals(fieldName)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String applicationFieldName = parser.getCurrentName();
+                    if (parser.nextToken() == JsonToken.VALUE_STRING
+                            && "applicationId".equals(applicationFieldName)) {
+                        applicationId = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Scans the {@code request} object the parser is positioned on, up to its end.
+     */
+    private void scanRequest(final JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                if ("requestId".equals(fieldName)) {
+                    requestId = parser.getText();
+                } else if ("timestamp".equals(fieldName)) {
+                    timestamp = parser.getText();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.json;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+/**
+ * Parses the timestamps of requests. Alexa sends timestamps in the fixed
+ * {@value #ALEXA_TIMESTAMP_FORMAT} format, in UTC, which is parsed directly from its characters
+ * into milliseconds since the epoch, without allocating or cloning a {@code SimpleDateFormat}.
+ * <p>
+ * Other ISO-8601 timestamps, such as timestamps with fractional seconds or a time zone offset, and
+ * numbers of milliseconds since the epoch are accepted as well, through a slower fallback.
+ *
+ * @see com.amazon.speech.speechlet.SpeechletRequest#getTimestampMillis()
+ */
+public final class TimestampCodec {
+    /**
+     * The format of the timestamps sent by Alexa, as a {@code SimpleDateFormat} pattern.
+     */
+    public static final String ALEXA_TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    private static final int ALEXA_TIMESTAMP_LENGTH = 20;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final int[] DAYS_IN_MONTH = {
+            31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31
+    };
+
+    private TimestampCodec() {
+    }
+
+    /**
+     * Parses a timestamp into milliseconds since the epoch.
+     *
+     * @param timestamp
+     *            the timestamp to parse
+     * @return the milliseconds since the epoch
+     * @throws IllegalArgumentException
+     *             if the timestamp is not in a supported format
+     */
+    public static long parse(final CharSequence timestamp) {
+        final long millis = parseAlexaTimestamp(timestamp);
+        return (millis != Long.MIN_VALUE) ? millis : parseLenient(timestamp.toString());
+    }
+
+    /**
+     * Parses a timestamp in the {@value #ALEXA_TIMESTAMP_FORMAT} format.
+     *
+     * @return the milliseconds since the epoch, or {@code Long.MIN_VALUE} if the timestamp is not
+     *         in that format
+     */
+    private static long parseAlexaTimestamp(final CharSequence timestamp) {
+        if (timestamp.length() != ALEXA_TIMESTAMP_LENGTH || timestamp.charAt(4) != '-'
+                || timestamp.charAt(7) != '-' || timestamp.charAt(10) != 'T'
+                || timestamp.charAt(13) != ':' || timestamp.charAt(16) != ':'
+                || timestamp.charAt(19) != 'Z') {
+            return Long.MIN_VALUE;
+        }
+
+        final int year = digits(timestamp, 0, 4);
+        final int month = digits(timestamp, 5, 2);
+        final int day = digits(timestamp, 8, 2);
+        final int hour = digits(timestamp, 11, 2);
+        final int minute = digits(timestamp, 14, 2);
+        final int second = digits(timestamp, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+                || second > 59) {
+            return Long.MIN_VALUE;
+        }
+
+        return daysSinceEpoch(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60 + minute) * 60 + second) * 1000L;
+    }
+
+    /**
+     * Returns the value of the provided decimal digits, or -1 if a character is not a digit.
+     */
+    private static int digits(final CharSequence chars, final int start, final int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            final int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and the provided date of the proleptic
+     * Gregorian calendar, for years 0 to 9999.
+     */
+    private static long daysSinceEpoch(final int year, final int month, final int day) {
+        // Counts years from March, so that the leap day is the last day of the year
+        final int y = (month <= 2) ? year - 1 : year;
+        final int era = ((y >= 0) ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    /**
+     * Parses an ISO-8601 timestamp with an offset, an ISO-8601 timestamp without offset taken as
+     * UTC, or a number of milliseconds since the epoch.
+     */
+    private static long parseLenient(final String timestamp) {
+        final String trimmed = timestamp.trim();
+        try {
+            return OffsetDateTime.parse(trimmed, DateTimeFormatter.ISO_OFFSET_DATE_TIME)
+                    .toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            // Not a timestamp with an offset, try the next format
+        }
+        try {
+            return LocalDateTime.parse(trimmed, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                    .toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            // Not a local timestamp, try the next format
+        }
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Unsupported timestamp format: " + timestamp);
+        }
+    }
+
+    /**
+     * Deserializes the timestamp of a request with {@link TimestampCodec#parse(CharSequence)},
+     * reading the characters of the timestamp from the parser buffer. Numbers are taken as
+     * milliseconds since the epoch.
+     */
+    public static final class DateDeserializer extends JsonDeserializer<Date> {
+        @Override
+        public Date deserialize(final JsonParser parser, final DeserializationContext context)
+                throws IOException {
+            final JsonToken token = parser.getCurrentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return new Date(parser.getLongValue());
+            } else if (token != JsonToken.VALUE_STRING) {
+                return (Date) context.handleUnexpectedToken(Date.class, parser);
+            }
+
+            final CharSequence timestamp =
+                    CharBuffer.wrap(parser.getTextCharacters(), parser.getTextOffset(),
+                            parser.getTextLength());
+            try {
+                return new Date(parse(timestamp));
+            } catch (IllegalArgumentException ex) {
+                throw context.weirdStringException(timestamp.toString(), Date.class,
+                        ex.getMessage());
+            }
+        }
+    }
+}
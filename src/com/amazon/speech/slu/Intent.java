@@ -11,14 +11,15 @@
 package com.amazon.speech.slu;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.lang3.Validate;
 
+import com.amazon.speech.json.ArrayMap;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * <p>
@@ -67,7 +68,7 @@ public final class Intent {
      */
     private Intent(final Builder builder) {
         name = builder.name;
-        slots = Collections.unmodifiableMap(builder.slots);
+        slots = new ArrayMap<>(builder.slots).makeUnmodifiable();
     }
 
     /**
@@ -79,10 +80,13 @@ public final class Intent {
      *            the slots associated with the intent
      */
     private Intent(@JsonProperty("name") final String name,
-            @JsonProperty("slots") final Map<String, Slot> slots) {
+            @JsonProperty("slots") @JsonDeserialize(as = ArrayMap.class)
+            final Map<String, Slot> slots) {
         this.name = name;
 
-        if (slots != null) {
+        if (slots instanceof ArrayMap) {
+            this.slots = ((ArrayMap<String, Slot>) slots).makeUnmodifiable();
+        } else if (slots != null) {
             this.slots = Collections.unmodifiableMap(slots);
         } else {
             this.slots = Collections.emptyMap();
@@ -124,7 +128,7 @@ public final class Intent {
      */
     public static final class Builder {
         private String name;
-        private final Map<String, Slot> slots = new HashMap<>();
+        private final Map<String, Slot> slots = new ArrayMap<>();
 
         private Builder() {
         }
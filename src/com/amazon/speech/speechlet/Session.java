@@ -10,14 +10,21 @@
 
 package com.amazon.speech.speechlet;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
 
+import com.amazon.speech.json.ArrayMap;
+import com.amazon.speech.json.SessionAttributeCodec;
+import com.amazon.speech.json.SessionAttributeMap;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * <p>
@@ -53,6 +60,29 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * </p>
  *
  * <p>
+ * Attributes holding objects are received as generic maps. {@link #getAttribute(String, Class)}
+ * converts them to the requested type once per invocation, and returns the same instance on
+ * subsequent calls. Changes made to that instance are sent back with the response, without the
+ * need to set the attribute again.
+ * </p>
+ *
+ * <p>
+ * Attributes that are not modified during an invocation are sent back with the response as the raw
+ * JSON they were received as, instead of being serialized again. An attribute counts as modified
+ * once it is set or removed, or once a map or a list it holds is returned, since its contents may
+ * then be modified in place. Calling {@link #getAttributes()} counts as modifying all the
+ * attributes.
+ * </p>
+ *
+ * <p>
+ * Large attributes can be set with {@link #setCompactAttribute(String, Object)}, in which case they
+ * are sent to the Alexa service deflated and base64 encoded, and only decoded when accessed during
+ * a later invocation. Such attributes remain compact until they are removed. String attributes
+ * must not start with {@value SessionAttributeCodec#COMPACT_PREFIX}, which marks compact
+ * attributes.
+ * </p>
+ *
+ * <p>
  * If the {@code Speechlet} throws a {@code SpeechletException}, modifications to the attributes up
  * to that point are applied, even if the request was not processed successfully.
  * </p>
@@ -76,6 +106,8 @@ public final class Session {
     private final Application application;
     private final Map<String, Object> attributes;
     private final User user;
+    private Map<String, TypedAttribute> typedAttributes;
+    private Set<String> compactAttributeNames;
 
     /**
      * Returns a new builder instance used to construct a new {@code Session}.
@@ -118,7 +150,9 @@ public final class Session {
     private Session(@JsonProperty("new") final boolean isNew,
             @JsonProperty("sessionId") final String sessionId,
             @JsonProperty("application") final Application application,
-            @JsonProperty("attributes") final Map<String, Object> attributes,
+            @JsonProperty("attributes")
+            @JsonDeserialize(using = SessionAttributeCodec.AttributesDeserializer.class)
+            final Map<String, Object> attributes,
             @JsonProperty("user") final User user) {
         this.isNew = isNew;
         this.sessionId = sessionId;
@@ -127,7 +161,7 @@ public final class Session {
         if (attributes != null) {
             this.attributes = attributes;
         } else {
-            this.attributes = new HashMap<String, Object>();
+            this.attributes = new ArrayMap<String, Object>();
         }
 
         this.user = user;
@@ -140,7 +174,7 @@ public final class Session {
         this.isNew = false;
         this.sessionId = null;
         this.application = null;
-        this.attributes = new HashMap<String, Object>();
+        this.attributes = new ArrayMap<String, Object>();
         this.user = null;
     }
 
@@ -174,12 +208,23 @@ public final class Session {
     }
 
     /**
-     * Returns all the session attributes.
+     * Returns all the session attributes. Compact attributes are decoded, and all the attributes
+     * count as modified from then on. The session is serialized through
+     * {@link #getResponseAttributes()} instead, which leaves it unchanged.
      *
      * @return a mutable map of all the attributes that may be altered directly
      */
-    @JsonInclude(Include.NON_EMPTY)
+    @JsonIgnore
     public Map<String, Object> getAttributes() {
+        if (attributes instanceof SessionAttributeMap) {
+            ((SessionAttributeMap) attributes).forgetRawValues();
+        }
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            if (SessionAttributeCodec.isCompact(entry.getValue())) {
+                entry.setValue(SessionAttributeCodec.decodeCompact((String) entry.getValue()));
+                addCompactAttributeName(entry.getKey());
+            }
+        }
         return attributes;
     }
 
@@ -191,7 +236,124 @@ public final class Session {
      * @return the value or {@code null}
      */
     public Object getAttribute(final String name) {
-        return attributes.get(name);
+        final Object value = getValue(name);
+        if (value instanceof Map || value instanceof Collection) {
+            forgetRawValue(name);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the attribute associated with the provided name, converted to the provided type.
+     * The conversion happens once per {@code Speechlet} invocation: the converted value is cached
+     * and written back to the attributes when the response is generated, so that changes made to
+     * it are kept for the next invocation.
+     *
+     * @param name
+     *            the name of the attribute to retrieve
+     * @param type
+     *            the type of the attribute
+     * @return the value or {@code null}
+     * @throws IllegalArgumentException
+     *             if the attribute cannot be converted to the provided type
+     */
+    public <T> T getAttribute(final String name, final Class<T> type) {
+        final Object value = getValue(name);
+        if (value == null) {
+            return null;
+        } else if (type.isInstance(value)) {
+            if (value instanceof Map || value instanceof Collection) {
+                forgetRawValue(name);
+            }
+            return type.cast(value);
+        }
+
+        if (typedAttributes == null) {
+            typedAttributes = new ArrayMap<>();
+        }
+        TypedAttribute typedAttribute = typedAttributes.get(name);
+        if (typedAttribute == null || typedAttribute.source != value
+                || !type.isInstance(typedAttribute.value)) {
+            typedAttribute = new TypedAttribute(value, SessionAttributeCodec.decode(value, type));
+            typedAttributes.put(name, typedAttribute);
+        }
+        return type.cast(typedAttribute.value);
+    }
+
+    /**
+     * Returns the value of the provided attribute, decoding it first if it is compact.
+     */
+    private Object getValue(final String name) {
+        Object value = attributes.get(name);
+        if (SessionAttributeCodec.isCompact(value)) {
+            value = SessionAttributeCodec.decodeCompact((String) value);
+            attributes.put(name, value);
+            addCompactAttributeName(name);
+        }
+        return value;
+    }
+
+    private void addCompactAttributeName(final String name) {
+        if (compactAttributeNames == null) {
+            compactAttributeNames = new HashSet<>();
+        }
+        compactAttributeNames.add(name);
+    }
+
+    /**
+     * Writes the values converted by {@link #getAttribute(String, Class)} back to the attributes,
+     * unless the attribute has been replaced or removed since it was converted.
+     */
+    void writeTypedAttributes() {
+        if (typedAttributes == null) {
+            return;
+        }
+        for (Map.Entry<String, TypedAttribute> entry : typedAttributes.entrySet()) {
+            if (attributes.get(entry.getKey()) == entry.getValue().source) {
+                attributes.put(entry.getKey(), entry.getValue().value);
+                forgetRawValue(entry.getKey());
+            }
+        }
+        typedAttributes = null;
+    }
+
+    /**
+     * Returns the attributes to send back with the response. Attributes that have not been
+     * modified are replaced with the raw JSON they were received as, and modified compact
+     * attributes are encoded.
+     *
+     * @return the attributes to serialize in the response
+     */
+    @JsonProperty("attributes")
+    @JsonInclude(Include.NON_EMPTY)
+    Map<String, Object> getResponseAttributes() {
+        final SessionAttributeMap attributeMap =
+                (attributes instanceof SessionAttributeMap && ((SessionAttributeMap) attributes)
+                        .hasRawValues()) ? (SessionAttributeMap) attributes : null;
+        if (attributeMap == null && compactAttributeNames == null) {
+            return attributes;
+        }
+
+        final Map<String, Object> responseAttributes = new ArrayMap<>(attributes.size());
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            Object value = (attributeMap != null) ? attributeMap.getRawValue(entry.getKey()) : null;
+            if (value == null) {
+                value = entry.getValue();
+                if (value != null && compactAttributeNames != null
+                        && compactAttributeNames.contains(entry.getKey())
+                        && !SessionAttributeCodec.isCompact(value)) {
+                    value = SessionAttributeCodec.encodeCompact(value);
+                }
+            }
+            responseAttributes.put(entry.getKey(), value);
+        }
+        return responseAttributes;
+    }
+
+    private void forgetRawValue(final String name) {
+        if (attributes instanceof SessionAttributeMap) {
+            ((SessionAttributeMap) attributes).forgetRawValue(name);
+        }
     }
 
     /**
@@ -204,6 +366,24 @@ public final class Session {
      */
     public void setAttribute(final String name, final Object value) {
         attributes.put(name, value);
+        forgetRawValue(name);
+        if (typedAttributes != null) {
+            typedAttributes.remove(name);
+        }
+    }
+
+    /**
+     * Add or modify the attribute with the provided name, and send it to the Alexa service in the
+     * compact form from now on. Use this method for attributes holding large lists or documents.
+     *
+     * @param name
+     *            the name of the attribute to set
+     * @param value
+     *            the new value for the attribute
+     */
+    public void setCompactAttribute(final String name, final Object value) {
+        setAttribute(name, value);
+        addCompactAttributeName(name);
     }
 
     /**
@@ -214,6 +394,13 @@ public final class Session {
      */
     public void removeAttribute(final String name) {
         attributes.remove(name);
+        forgetRawValue(name);
+        if (compactAttributeNames != null) {
+            compactAttributeNames.remove(name);
+        }
+        if (typedAttributes != null) {
+            typedAttributes.remove(name);
+        }
     }
 
     /**
@@ -225,6 +412,20 @@ public final class Session {
         return user;
     }
 
+    /**
+     * An attribute value converted by {@link Session#getAttribute(String, Class)}, along with the
+     * value it was converted from.
+     */
+    private static final class TypedAttribute {
+        private final Object source;
+        private final Object value;
+
+        private TypedAttribute(final Object source, final Object value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+
     /**
      * Builder used to construct a new {@code Session}.
      */
@@ -232,7 +433,7 @@ public final class Session {
         private boolean isNew = false;
         private String sessionId;
         private Application application;
-        private Map<String, Object> attributes = new HashMap<>();
+        private Map<String, Object> attributes = new ArrayMap<>();
         private User user;
 
         private Builder() {
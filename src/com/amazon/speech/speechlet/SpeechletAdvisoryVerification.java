@@ -0,0 +1,151 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+import com.amazon.speech.speechlet.verifier.AdvisorySpeechletResponseVerifier;
+
+/**
+ * <p>
+ * A {@code SpeechletAdvisoryVerification} controls how the {@link SpeechletRequestHandler} runs
+ * the {@link AdvisorySpeechletResponseVerifier}s, which only log warnings and never reject a
+ * response.
+ * </p>
+ *
+ * <p>
+ * The advisory verifiers can be run on a sample of the responses only, and can be deferred to an
+ * {@code Executor}, in which case they run off the response path once the response has been
+ * serialized. Without a {@code SpeechletAdvisoryVerification}, they run synchronously on every
+ * response like any other verifier.
+ * </p>
+ *
+ * <p>
+ * By default, deferred verifications run on a single daemon thread with a queue of
+ * {@value #DEFAULT_MAX_PENDING_VERIFICATIONS} verifications. Verifications that do not fit in the
+ * queue are dropped, so that a slow verifier never delays a response.
+ * </p>
+ */
+public final class SpeechletAdvisoryVerification {
+    /**
+     * The default maximum number of deferred verifications waiting to run.
+     */
+    public static final int DEFAULT_MAX_PENDING_VERIFICATIONS = 1024;
+
+    private final double sampleRate;
+    private final Executor executor;
+
+    /**
+     * Returns a new builder instance used to construct a new
+     * {@code SpeechletAdvisoryVerification}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Private constructor to return a new {@code SpeechletAdvisoryVerification} from a
+     * {@code Builder}.
+     *
+     * @param builder
+     *            the builder used to construct the {@code SpeechletAdvisoryVerification}.
+     */
+    private SpeechletAdvisoryVerification(final Builder builder) {
+        sampleRate = builder.sampleRate;
+        executor =
+                (builder.deferred && builder.executor == null) ? newDefaultExecutor()
+                        : builder.executor;
+    }
+
+    /**
+     * Returns the fraction of the responses verified by the advisory verifiers.
+     *
+     * @return the sample rate, between 0 and 1
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Returns the executor running the deferred verifications.
+     *
+     * @return the executor, or {@code null} if the verifications run on the response path
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns whether the current response should be verified.
+     *
+     * @return true if the current response is part of the sample
+     */
+    boolean sample() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static Executor newDefaultExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(DEFAULT_MAX_PENDING_VERIFICATIONS),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        Thread thread = new Thread(runnable, "speechlet-advisory-verification");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Builder used to construct a new {@code SpeechletAdvisoryVerification}.
+     */
+    public static final class Builder {
+        private double sampleRate = 1.0;
+        private boolean deferred;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        public Builder withSampleRate(final double sampleRate) {
+            Validate.inclusiveBetween(0.0, 1.0, sampleRate,
+                    "The sample rate must be between 0 and 1");
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        public Builder withDeferredExecution() {
+            this.deferred = true;
+            return this;
+        }
+
+        public Builder withDeferredExecution(final Executor executor) {
+            Validate.notNull(executor, "Executor must be defined");
+            this.deferred = true;
+            this.executor = executor;
+            return this;
+        }
+
+        public SpeechletAdvisoryVerification build() {
+            return new SpeechletAdvisoryVerification(this);
+        }
+    }
+}
@@ -10,14 +10,18 @@
 
 package com.amazon.speech.speechlet;
 
+import java.time.Instant;
 import java.util.Date;
 
+import com.amazon.speech.json.TimestampCodec;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonSubTypes.Type;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeInfo.As;
 import com.fasterxml.jackson.annotation.JsonTypeInfo.Id;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Base class for requests used for {@code Speechlet} invocation.
@@ -31,12 +35,14 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo.Id;
         @Type(value = SessionEndedRequest.class)
 })
 public abstract class SpeechletRequest {
-    private final String requestId;
-
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = ISO_8601_FORMAT, timezone = "UTC")
-    private final Date timestamp;
+    /**
+     * The value returned by {@link #getTimestampMillis()} when the request has no timestamp.
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
 
-    private static final String ISO_8601_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+    private final String requestId;
+    private final long timestamp;
+    private Instant timestampInstant;
 
     /**
      * Constructs a new {@code SpeechletRequest} with a request identifier and timestamp.
@@ -48,7 +54,7 @@ public abstract class SpeechletRequest {
      */
     protected SpeechletRequest(final String requestId, final Date timestamp) {
         this.requestId = requestId;
-        this.timestamp = (timestamp != null) ? new Date(timestamp.getTime()) : null;
+        this.timestamp = (timestamp != null) ? timestamp.getTime() : NO_TIMESTAMP;
     }
 
     /**
@@ -62,11 +68,39 @@ public abstract class SpeechletRequest {
     }
 
     /**
-     * Returns the request timestamp.
+     * Returns the request timestamp. A new {@code Date} is returned on every call; prefer
+     * {@link #getTimestampMillis()} or {@link #getTimestampInstant()}, which do not copy.
      *
      * @return the request timestamp.
      */
+    @JsonFormat(shape = JsonFormat.Shape.STRING,
+            pattern = TimestampCodec.ALEXA_TIMESTAMP_FORMAT, timezone = "UTC")
+    @JsonDeserialize(using = TimestampCodec.DateDeserializer.class)
     public final Date getTimestamp() {
-        return (timestamp != null) ? new Date(timestamp.getTime()) : null;
+        return (timestamp != NO_TIMESTAMP) ? new Date(timestamp) : null;
+    }
+
+    /**
+     * Returns the request timestamp in milliseconds since the epoch.
+     *
+     * @return the request timestamp, or {@link #NO_TIMESTAMP} if the request has none.
+     */
+    @JsonIgnore
+    public final long getTimestampMillis() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the request timestamp as an {@code Instant}. The {@code Instant} is created on the
+     * first call only.
+     *
+     * @return the request timestamp.
+     */
+    @JsonIgnore
+    public final Instant getTimestampInstant() {
+        if (timestampInstant == null && timestamp != NO_TIMESTAMP) {
+            timestampInstant = Instant.ofEpochMilli(timestamp);
+        }
+        return timestampInstant;
     }
 }
@@ -0,0 +1,203 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * De-duplicates {@code Speechlet} calls by {@code requestId}. The Alexa service may retry a request
+ * with the same {@code requestId} while the first attempt is still running. With a coalescer
+ * installed on the {@link SpeechletRequestHandler}, such a retry waits for the in-flight call and
+ * shares its serialized response instead of invoking the {@code Speechlet} a second time. A
+ * response also remains available to retries for a short window after the call completed.
+ * </p>
+ *
+ * <p>
+ * Requests are still parsed and verified on every attempt; only dispatch and serialization are
+ * shared. Failed calls are not retained, so a retry of a failed request invokes the
+ * {@code Speechlet} again. The number of tracked requests is bounded: once the limit is reached,
+ * additional requests are handled without coalescing until entries expire.
+ * </p>
+ */
+public class SpeechletRequestCoalescer {
+    /**
+     * The default maximum number of requests tracked at any time.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final int maxEntries;
+    private final long windowNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> completedEntries = new ConcurrentLinkedQueue<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Constructs a new coalescer retaining completed responses for the provided window and
+     * tracking at most {@value #DEFAULT_MAX_ENTRIES} requests.
+     *
+     * @param window
+     *            how long completed responses are shared with retries
+     * @param unit
+     *            the time unit of the {@code window} parameter
+     */
+    public SpeechletRequestCoalescer(final long window, final TimeUnit unit) {
+        this(DEFAULT_MAX_ENTRIES, window, unit);
+    }
+
+    /**
+     * Constructs a new coalescer retaining completed responses for the provided window.
+     *
+     * @param maxEntries
+     *            the maximum number of requests tracked at any time
+     * @param window
+     *            how long completed responses are shared with retries
+     * @param unit
+     *            the time unit of the {@code window} parameter
+     */
+    public SpeechletRequestCoalescer(final int maxEntries, final long window, final TimeUnit unit) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The maximum number of entries must be positive");
+        }
+        if (window < 0) {
+            throw new IllegalArgumentException("A negative window is not supported");
+        }
+        this.maxEntries = maxEntries;
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Returns the number of requests that were served from an in-flight or completed call.
+     *
+     * @return the number of coalesced requests
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the serialized response for the provided request, invoking the call only if no
+     * in-flight or recently completed call exists for the same {@code requestId}.
+     *
+     * @param requestId
+     *            the identifier of the request
+     * @param call
+     *            the call producing the serialized response
+     * @return the serialized response
+     */
+    byte[] coalesce(final String requestId, final SpeechletCall call) throws IOException,
+            SpeechletRequestHandlerException, SpeechletException {
+        expireEntries(System.nanoTime());
+
+        Entry entry = entries.get(requestId);
+        if (entry == null) {
+            if (entries.size() >= maxEntries) {
+                return call.call();
+            }
+            final Entry newEntry = new Entry(requestId);
+            entry = entries.putIfAbsent(requestId, newEntry);
+            if (entry == null) {
+                return run(newEntry, call);
+            }
+        }
+
+        coalescedCount.incrementAndGet();
+        return entry.await();
+    }
+
+    private byte[] run(final Entry entry, final SpeechletCall call) throws IOException,
+            SpeechletRequestHandlerException, SpeechletException {
+        try {
+            final byte[] serializedSpeechletResponse = call.call();
+            entry.complete(serializedSpeechletResponse, null);
+            completedEntries.add(entry);
+            return serializedSpeechletResponse;
+        } catch (Throwable ex) {
+            entries.remove(entry.requestId, entry);
+            entry.complete(null, ex);
+            throw ex;
+        }
+    }
+
+    private void expireEntries(final long now) {
+        Entry head;
+        while ((head = completedEntries.peek()) != null
+                && now - head.completedAtNanos >= windowNanos) {
+            head = completedEntries.poll();
+            if (head != null) {
+                entries.remove(head.requestId, head);
+            }
+        }
+    }
+
+    /**
+     * A call producing the serialized response of a request.
+     */
+    interface SpeechletCall {
+        byte[] call() throws IOException, SpeechletRequestHandlerException, SpeechletException;
+    }
+
+    /**
+     * An in-flight or completed call.
+     */
+    private static final class Entry {
+        private final String requestId;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile byte[] serializedSpeechletResponse;
+        private volatile Throwable failure;
+        private volatile long completedAtNanos;
+
+        private Entry(final String requestId) {
+            this.requestId = requestId;
+        }
+
+        private void complete(final byte[] serializedSpeechletResponse, final Throwable failure) {
+            this.serializedSpeechletResponse = serializedSpeechletResponse;
+            this.failure = failure;
+            this.completedAtNanos = System.nanoTime();
+            done.countDown();
+        }
+
+        private byte[] await() throws IOException, SpeechletRequestHandlerException,
+                SpeechletException {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SpeechletException("Interrupted while waiting for request " + requestId,
+                        ex);
+            }
+
+            final Throwable cause = failure;
+            if (cause == null) {
+                return serializedSpeechletResponse;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SpeechletRequestHandlerException) {
+                throw (SpeechletRequestHandlerException) cause;
+            } else if (cause instanceof SpeechletException) {
+                throw (SpeechletException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SpeechletException(cause);
+        }
+    }
+}
@@ -11,20 +11,76 @@
 package com.amazon.speech.speechlet;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.amazon.speech.Sdk;
+import com.amazon.speech.json.SessionAttributeCodec;
 import com.amazon.speech.json.SpeechletRequestEnvelope;
 import com.amazon.speech.json.SpeechletResponseEnvelope;
+import com.amazon.speech.speechlet.store.SessionStore;
 
 /**
  * This class takes an incoming request from the Alexa service, executes that call on the
- * {@link Speechlet} and returns the resulting response.
+ * {@link Speechlet} and returns the resulting response. When constructed with a
+ * {@link SpeechletTimeBudget}, the dispatcher stops waiting for the {@code Speechlet} once the
+ * budget of the request runs out and returns the fallback response instead. When constructed with
+ * a {@link SessionStore}, the session attributes are loaded from and saved to the store, and only
+ * a token is exchanged with the Alexa service.
  */
 public class SpeechletRequestDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(SpeechletRequestDispatcher.class);
+
+    private static final Map<String, Object> TOKEN_ATTRIBUTES = Collections
+            .<String, Object>singletonMap(SessionStore.TOKEN_ATTRIBUTE, Boolean.TRUE);
+
     private final Speechlet speechlet;
+    private final SpeechletTimeBudget timeBudget;
+    private final SessionStore sessionStore;
 
     public SpeechletRequestDispatcher(Speechlet speechlet) {
+        this(speechlet, null, null);
+    }
+
+    /**
+     * Constructs a new dispatcher bounding each call to the {@code Speechlet} by the provided time
+     * budget.
+     *
+     * @param speechlet
+     *            the speechlet to be invoked
+     * @param timeBudget
+     *            the time budget, or {@code null} to wait for the {@code Speechlet} indefinitely
+     */
+    public SpeechletRequestDispatcher(Speechlet speechlet, SpeechletTimeBudget timeBudget) {
+        this(speechlet, timeBudget, null);
+    }
+
+    /**
+     * Constructs a new dispatcher bounding each call to the {@code Speechlet} by the provided time
+     * budget and keeping the session attributes in the provided store.
+     *
+     * @param speechlet
+     *            the speechlet to be invoked
+     * @param timeBudget
+     *            the time budget, or {@code null} to wait for the {@code Speechlet} indefinitely
+     * @param sessionStore
+     *            the session store, or {@code null} to exchange the session attributes with the
+     *            Alexa service
+     */
+    public SpeechletRequestDispatcher(Speechlet speechlet, SpeechletTimeBudget timeBudget,
+            SessionStore sessionStore) {
         this.speechlet = speechlet;
+        this.timeBudget = timeBudget;
+        this.sessionStore = sessionStore;
     }
 
     /**
@@ -47,6 +103,141 @@ public class SpeechletRequestDispatcher {
     public SpeechletResponseEnvelope dispatchSpeechletCall(
             SpeechletRequestEnvelope requestEnvelope, Session session) throws IOException,
             SpeechletRequestHandlerException, SpeechletException {
+        final boolean stored =
+                sessionStore != null && session != null && session.getSessionId() != null;
+        if (stored) {
+            loadAttributes(session);
+        }
+
+        final long budgetMillis =
+                (timeBudget != null) ? timeBudget.getBudgetMillis(requestEnvelope.getRequest())
+                        : 0L;
+        final SpeechletResponseEnvelope responseEnvelope =
+                (budgetMillis <= 0) ? dispatch(requestEnvelope, session) : dispatchWithinBudget(
+                        requestEnvelope, session, budgetMillis);
+
+        if (stored) {
+            saveAttributes(session, responseEnvelope);
+        }
+        return responseEnvelope;
+    }
+
+    /**
+     * Replaces the received attributes with the attributes kept in the session store, if the
+     * received attributes hold the session store token.
+     */
+    private void loadAttributes(final Session session) {
+        // Also drops the raw JSON of the received attributes, the store keeps actual values
+        final Map<String, Object> attributes = session.getAttributes();
+        if (!attributes.containsKey(SessionStore.TOKEN_ATTRIBUTE)) {
+            return;
+        }
+
+        attributes.clear();
+        final Map<String, Object> storedAttributes = sessionStore.load(session.getSessionId());
+        if (storedAttributes != null) {
+            attributes.putAll(storedAttributes);
+        } else {
+            log.warn("Attributes of session {} are missing from the session store",
+                    session.getSessionId());
+        }
+    }
+
+    /**
+     * Saves the attributes of the response envelope in the session store and replaces them with the
+     * session store token, or removes the attributes from the store once the session has ended.
+     */
+    private void saveAttributes(final Session session,
+            final SpeechletResponseEnvelope responseEnvelope) {
+        final Map<String, Object> attributes = responseEnvelope.getSessionAttributes();
+        if (attributes == null) {
+            sessionStore.remove(session.getSessionId());
+        } else {
+            sessionStore.save(session.getSessionId(), attributes);
+            responseEnvelope.setSessionAttributes(TOKEN_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * Runs the {@code Speechlet} call on the executor of the time budget and waits for it at most
+     * {@code budgetMillis}. The call keeps running in the background if the budget runs out.
+     */
+    private SpeechletResponseEnvelope dispatchWithinBudget(
+            final SpeechletRequestEnvelope requestEnvelope, final Session session,
+            final long budgetMillis) throws IOException, SpeechletRequestHandlerException,
+            SpeechletException {
+        // Keep a copy of the attributes as received, the late call may still modify their values
+        final byte[] receivedAttributes =
+                (session != null) ? SessionAttributeCodec.writeAttributes(session
+                        .getResponseAttributes()) : null;
+        final SpeechletRequest speechletRequest = requestEnvelope.getRequest();
+        final String requestId =
+                (speechletRequest != null) ? speechletRequest.getRequestId() : null;
+
+        final Future<SpeechletResponseEnvelope> future;
+        try {
+            future =
+                    timeBudget.getExecutor().submit(new Callable<SpeechletResponseEnvelope>() {
+                        @Override
+                        public SpeechletResponseEnvelope call() throws Exception {
+                            return dispatch(requestEnvelope, session);
+                        }
+                    });
+        } catch (RejectedExecutionException ex) {
+            log.warn("Could not schedule request {}, returning the fallback response", requestId);
+            return fallback(speechletRequest, receivedAttributes);
+        }
+
+        try {
+            return future.get(budgetMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            log.warn("Request {} exceeded its time budget of {} ms, returning the fallback "
+                    + "response", requestId, budgetMillis);
+            return fallback(speechletRequest, receivedAttributes);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SpeechletException("Interrupted while waiting for the Speechlet", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SpeechletRequestHandlerException) {
+                throw (SpeechletRequestHandlerException) cause;
+            } else if (cause instanceof SpeechletException) {
+                throw (SpeechletException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SpeechletException(cause);
+        }
+    }
+
+    /**
+     * Returns the response envelope used when the {@code Speechlet} did not respond in time.
+     * {@link SessionEndedRequest}s have no response.
+     */
+    private SpeechletResponseEnvelope fallback(final SpeechletRequest speechletRequest,
+            final byte[] receivedAttributes) {
+        final SpeechletResponseEnvelope responseEnvelope = new SpeechletResponseEnvelope();
+        responseEnvelope.setVersion(Sdk.VERSION);
+
+        if (!(speechletRequest instanceof SessionEndedRequest)) {
+            final SpeechletResponse fallbackResponse = timeBudget.getFallbackResponse();
+            responseEnvelope.setResponse(fallbackResponse);
+            if (receivedAttributes != null && !fallbackResponse.getShouldEndSession()) {
+                responseEnvelope.setSessionAttributes(SessionAttributeCodec
+                        .readAttributes(receivedAttributes));
+            }
+        }
+
+        return responseEnvelope;
+    }
+
+    private SpeechletResponseEnvelope dispatch(final SpeechletRequestEnvelope requestEnvelope,
+            final Session session) throws IOException, SpeechletRequestHandlerException,
+            SpeechletException {
         /*
          * Set to true until we know that the session was ended by the Speechlet or this is an end
          * of session callback. This way the session attributes are saved if an exception occurs.
@@ -105,7 +296,10 @@ public class SpeechletRequestDispatcher {
         if (session != null) {
             // Save mutable data in session when applicable
             if (saveSessionAttributes) {
-                responseEnvelope.setSessionAttributes(session.getAttributes());
+                session.writeTypedAttributes();
+                // Attributes kept in the session store need neither raw JSON nor compaction
+                responseEnvelope.setSessionAttributes((sessionStore != null) ? session
+                        .getAttributes() : session.getResponseAttributes());
             }
         }
 
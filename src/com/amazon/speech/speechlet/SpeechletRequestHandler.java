@@ -11,10 +11,26 @@
 package com.amazon.speech.speechlet;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.amazon.speech.json.SpeechletRequestEnvelope;
+import com.amazon.speech.json.SpeechletRequestPreScan;
 import com.amazon.speech.json.SpeechletResponseEnvelope;
+import com.amazon.speech.speechlet.interceptor.SpeechletRequestInterceptor;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics.Phase;
+import com.amazon.speech.speechlet.store.SessionStore;
+import com.amazon.speech.speechlet.verifier.AdvisorySpeechletResponseVerifier;
+import com.amazon.speech.speechlet.verifier.PreScanSpeechletRequestVerifier;
+import com.amazon.speech.speechlet.verifier.ReplaySpeechletRequestVerifier;
 import com.amazon.speech.speechlet.verifier.SpeechletRequestVerifier;
 import com.amazon.speech.speechlet.verifier.SpeechletResponseVerifier;
 
@@ -24,16 +40,154 @@ import com.amazon.speech.speechlet.verifier.SpeechletResponseVerifier;
  * response bytes. This class can be hosted by a servlet (for instance, for a web server) or by AWS
  * Lambda. In either case, the logic is the same with different surrounding logic to handle the
  * generated output bytes.
+ * <p>
+ * Each phase of the call (parse, verify, dispatch and serialize) can be observed by the
+ * {@link SpeechletRequestInterceptor}s provided at construction time. The interceptors are copied
+ * into a fixed array once, and are skipped entirely when none are configured. Phase and
+ * end-to-end latencies are recorded in the {@link SpeechletMetrics} returned by
+ * {@link #getMetrics()}. On Java 11 and later, the optional
+ * {@code com.amazon.speech.speechlet.jfr.JfrSpeechletRequestInterceptor} emits a Java Flight
+ * Recorder event for each phase. Request verifiers that are also interceptors, such as the
+ * {@link com.amazon.speech.speechlet.verifier.ReplaySpeechletRequestVerifier}, are added after the
+ * configured interceptors.
+ * <p>
+ * Request verifiers implementing {@link PreScanSpeechletRequestVerifier} are first run against a
+ * streaming {@link SpeechletRequestPreScan} of the request, so that misrouted or stale requests
+ * are rejected before the envelope is deserialized. When a {@link SpeechletAdvisoryVerification}
+ * is configured, the {@link AdvisorySpeechletResponseVerifier}s, which never reject a response,
+ * run on a sample of the responses and optionally off the response path.
+ * <p>
+ * Calls to the {@code Speechlet} can be bounded by a {@link SpeechletTimeBudget}, in which case the
+ * fallback response of the budget is returned when the {@code Speechlet} does not respond in time.
+ * Retries of a request sharing its {@code requestId} can be coalesced with a
+ * {@link SpeechletRequestCoalescer}, so that the {@code Speechlet} is invoked only once; a
+ * coalescer cannot be combined with a {@link ReplaySpeechletRequestVerifier}. Session attributes can
+ * be kept server-side in a {@link SessionStore}.
  */
 public class SpeechletRequestHandler {
+    private static final Logger log = LoggerFactory.getLogger(SpeechletRequestHandler.class);
+
+    private static final SpeechletRequestInterceptor[] NO_INTERCEPTORS =
+            new SpeechletRequestInterceptor[0];
+
+    private static final PreScanSpeechletRequestVerifier[] NO_PRE_SCAN_VERIFIERS =
+            new PreScanSpeechletRequestVerifier[0];
+
     private final List<SpeechletRequestVerifier> requestVerifiers;
 
+    private final PreScanSpeechletRequestVerifier[] preScanVerifiers;
+
+    private static final AdvisorySpeechletResponseVerifier[] NO_ADVISORY_VERIFIERS =
+            new AdvisorySpeechletResponseVerifier[0];
+
     private final List<SpeechletResponseVerifier> responseVerifiers;
 
+    private final AdvisorySpeechletResponseVerifier[] advisoryVerifiers;
+
+    private final SpeechletAdvisoryVerification advisoryVerification;
+
+    private final SpeechletRequestInterceptor[] interceptors;
+
+    private final SpeechletTimeBudget timeBudget;
+
+    private final SpeechletRequestCoalescer coalescer;
+
+    private final SessionStore sessionStore;
+
+    private final SpeechletMetrics metrics = new SpeechletMetrics();
+
+    /**
+     * Returns a new builder instance used to construct a new {@code SpeechletRequestHandler}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
     public SpeechletRequestHandler(final List<SpeechletRequestVerifier> requestVerifiers,
             final List<SpeechletResponseVerifier> responseVerifiers) {
-        this.requestVerifiers = requestVerifiers;
-        this.responseVerifiers = responseVerifiers;
+        this(builder().withRequestVerifiers(requestVerifiers).withResponseVerifiers(
+                responseVerifiers));
+    }
+
+    /**
+     * Constructs a new handler with the provided verifiers and interceptors.
+     *
+     * @param requestVerifiers
+     *            the verifiers run against every request before dispatch
+     * @param responseVerifiers
+     *            the verifiers run against every response before serialization
+     * @param interceptors
+     *            the interceptors invoked around each phase of the call, in order
+     */
+    public SpeechletRequestHandler(final List<SpeechletRequestVerifier> requestVerifiers,
+            final List<SpeechletResponseVerifier> responseVerifiers,
+            final List<? extends SpeechletRequestInterceptor> interceptors) {
+        this(builder()
+                .withRequestVerifiers(requestVerifiers)
+                .withResponseVerifiers(responseVerifiers)
+                .withInterceptors(interceptors));
+    }
+
+    /**
+     * Private constructor to return a new {@code SpeechletRequestHandler} from a {@code Builder}.
+     *
+     * @param builder
+     *            the builder used to construct the {@code SpeechletRequestHandler}.
+     */
+    private SpeechletRequestHandler(final Builder builder) {
+        requestVerifiers = builder.requestVerifiers;
+        final List<PreScanSpeechletRequestVerifier> preScanVerifierList = new ArrayList<>();
+        for (SpeechletRequestVerifier verifier : requestVerifiers) {
+            if (verifier instanceof PreScanSpeechletRequestVerifier) {
+                preScanVerifierList.add((PreScanSpeechletRequestVerifier) verifier);
+            }
+        }
+        preScanVerifiers =
+                preScanVerifierList.isEmpty() ? NO_PRE_SCAN_VERIFIERS : preScanVerifierList
+                        .toArray(new PreScanSpeechletRequestVerifier[preScanVerifierList.size()]);
+        advisoryVerification = builder.advisoryVerification;
+        if (advisoryVerification != null) {
+            final List<SpeechletResponseVerifier> enforcingVerifierList = new ArrayList<>();
+            final List<AdvisorySpeechletResponseVerifier> advisoryVerifierList =
+                    new ArrayList<>();
+            for (SpeechletResponseVerifier verifier : builder.responseVerifiers) {
+                if (verifier instanceof AdvisorySpeechletResponseVerifier) {
+                    advisoryVerifierList.add((AdvisorySpeechletResponseVerifier) verifier);
+                } else {
+                    enforcingVerifierList.add(verifier);
+                }
+            }
+            responseVerifiers = enforcingVerifierList;
+            advisoryVerifiers = advisoryVerifierList.toArray(NO_ADVISORY_VERIFIERS);
+        } else {
+            responseVerifiers = builder.responseVerifiers;
+            advisoryVerifiers = NO_ADVISORY_VERIFIERS;
+        }
+        final List<SpeechletRequestInterceptor> interceptorList =
+                new ArrayList<>(builder.interceptors);
+        for (SpeechletRequestVerifier verifier : builder.requestVerifiers) {
+            if (verifier instanceof SpeechletRequestInterceptor
+                    && !interceptorList.contains(verifier)) {
+                interceptorList.add((SpeechletRequestInterceptor) verifier);
+            }
+        }
+        interceptors =
+                interceptorList.isEmpty() ? NO_INTERCEPTORS : interceptorList
+                        .toArray(new SpeechletRequestInterceptor[interceptorList.size()]);
+        timeBudget = builder.timeBudget;
+        coalescer = builder.coalescer;
+        sessionStore = builder.sessionStore;
+    }
+
+    /**
+     * Returns the metrics recorded by this handler.
+     *
+     * @return the metrics
+     */
+    public SpeechletMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -56,16 +210,89 @@ public class SpeechletRequestHandler {
      */
     public byte[] handleSpeechletCall(Speechlet speechlet, byte[] serializedSpeechletRequest)
             throws IOException, SpeechletRequestHandlerException, SpeechletException {
+        return handleSpeechletCall(speechlet, serializedSpeechletRequest, null);
+    }
+
+    /**
+     * Processes the provided bytes as a request from the Alexa service, reusing a
+     * {@link SpeechletRequestPreScan} of the same bytes that the caller already made, for instance
+     * to route the request, so that the request is not scanned twice.
+     * 
+     * @param speechlet
+     *            the speechlet to be invoked
+     * @param serializedSpeechletRequest
+     *            the request coming from Alexa service
+     * @param preScan
+     *            the pre-scan of {@code serializedSpeechletRequest}, or {@code null} to scan it
+     *            here if pre-scan verifiers are configured
+     * @return the response that should be returned to the Alexa service
+     * @throws IOException
+     *             may occur during request or response serialization
+     * @throws SpeechletRequestHandlerException
+     *             indicates a problem with the request or response
+     * @throws SpeechletException
+     *             indicates a problem from within the included Speechlet
+     */
+    public byte[] handleSpeechletCall(Speechlet speechlet, byte[] serializedSpeechletRequest,
+            SpeechletRequestPreScan preScan) throws IOException,
+            SpeechletRequestHandlerException, SpeechletException {
+        boolean handled = false;
+        try {
+            final byte[] serializedSpeechletResponse =
+                    processSpeechletCall(speechlet, serializedSpeechletRequest, preScan);
+            handled = true;
+            return serializedSpeechletResponse;
+        } finally {
+            if (!handled) {
+                metrics.recordError();
+            }
+        }
+    }
+
+    private byte[] processSpeechletCall(final Speechlet speechlet,
+            final byte[] serializedSpeechletRequest, final SpeechletRequestPreScan preScan)
+            throws IOException,
+            SpeechletRequestHandlerException, SpeechletException {
+        final SpeechletRequestInterceptor[] interceptors = this.interceptors;
+        final boolean intercepted = interceptors.length != 0;
+
+        if (intercepted) {
+            for (SpeechletRequestInterceptor interceptor : interceptors) {
+                interceptor.beforeParse(serializedSpeechletRequest);
+            }
+        }
+
+        final long requestStart = System.nanoTime();
+        long phaseStart = requestStart;
+        if (preScanVerifiers.length != 0) {
+            verifyPreScan(serializedSpeechletRequest, preScan);
+            phaseStart = System.nanoTime();
+        }
 
         final SpeechletRequestEnvelope requestEnvelope =
                 SpeechletRequestEnvelope.fromJson(serializedSpeechletRequest);
+        long phaseEnd = System.nanoTime();
+        metrics.recordPhase(Phase.PARSE, phaseEnd - phaseStart);
 
         final SpeechletRequest request = requestEnvelope.getRequest();
         final Session session = requestEnvelope.getSession();
+        final String requestId = (request != null) ? request.getRequestId() : null;
+
+        if (intercepted) {
+            for (int i = interceptors.length - 1; i >= 0; i--) {
+                interceptors[i].afterParse(requestEnvelope);
+            }
+            for (SpeechletRequestInterceptor interceptor : interceptors) {
+                interceptor.beforeVerify(requestEnvelope);
+            }
+        }
 
         // Verify request
+        phaseStart = System.nanoTime();
         for (SpeechletRequestVerifier verifier : requestVerifiers) {
-            if (!verifier.verify(request, session)) {
+            final boolean verified = verifier.verify(request, session);
+            if (!verified) {
+                metrics.recordVerifierRejection(verifier);
                 String message =
                         String.format("Could not validate SpeechletRequest %s using verifier %s, "
                                 + "rejecting request", request != null ? request.getRequestId()
@@ -73,15 +300,108 @@ public class SpeechletRequestHandler {
                 throw new SpeechletRequestHandlerException(message);
             }
         }
+        phaseEnd = System.nanoTime();
+        metrics.recordPhase(Phase.REQUEST_VERIFICATION, phaseEnd - phaseStart);
+
+        if (intercepted) {
+            for (int i = interceptors.length - 1; i >= 0; i--) {
+                interceptors[i].afterVerify(requestEnvelope);
+            }
+        }
+
+        final byte[] serializedSpeechletResponse;
+        if (coalescer != null && requestId != null) {
+            serializedSpeechletResponse =
+                    coalescer.coalesce(requestId, new SpeechletRequestCoalescer.SpeechletCall() {
+                        @Override
+                        public byte[] call() throws IOException,
+                                SpeechletRequestHandlerException, SpeechletException {
+                            return dispatchAndSerialize(speechlet, requestEnvelope);
+                        }
+                    });
+        } else {
+            serializedSpeechletResponse = dispatchAndSerialize(speechlet, requestEnvelope);
+        }
+
+        metrics.recordRequest(request != null ? request.getClass().getSimpleName() : null,
+                (request instanceof IntentRequest) ? intentName((IntentRequest) request) : null,
+                System.nanoTime() - requestStart);
+
+        return serializedSpeechletResponse;
+    }
+
+    /**
+     * Runs the pre-scan verifiers against the values scanned from the serialized request, and
+     * rejects the request before it is deserialized if any of them fails.
+     */
+    private void verifyPreScan(final byte[] serializedSpeechletRequest,
+            final SpeechletRequestPreScan existingPreScan) throws IOException,
+            SpeechletRequestHandlerException {
+        final long phaseStart = System.nanoTime();
+        final SpeechletRequestPreScan preScan = (existingPreScan != null) ? existingPreScan
+                : SpeechletRequestPreScan.scan(serializedSpeechletRequest);
+        for (PreScanSpeechletRequestVerifier verifier : preScanVerifiers) {
+            final boolean verified = verifier.verify(preScan);
+            if (!verified) {
+                metrics.recordVerifierRejection(verifier);
+                String message =
+                        String.format("Could not validate SpeechletRequest %s using verifier %s "
+                                + "before parsing, rejecting request", preScan.getRequestId(),
+                                verifier.getClass().getSimpleName());
+                throw new SpeechletRequestHandlerException(message);
+            }
+        }
+        metrics.recordPhase(Phase.PRE_SCAN, System.nanoTime() - phaseStart);
+    }
+
+    /**
+     * Dispatches the verified request to the {@code Speechlet}, verifies the response and
+     * serializes it.
+     */
+    private byte[] dispatchAndSerialize(final Speechlet speechlet,
+            final SpeechletRequestEnvelope requestEnvelope) throws IOException,
+            SpeechletRequestHandlerException, SpeechletException {
+        final SpeechletRequestInterceptor[] interceptors = this.interceptors;
+        final boolean intercepted = interceptors.length != 0;
+        final SpeechletRequest request = requestEnvelope.getRequest();
+        final Session session = requestEnvelope.getSession();
+        final String requestId = (request != null) ? request.getRequestId() : null;
+
+        if (intercepted) {
+            for (SpeechletRequestInterceptor interceptor : interceptors) {
+                interceptor.beforeDispatch(requestEnvelope);
+            }
+        }
 
         // Dispatch request to Speechlet
-        SpeechletRequestDispatcher dispatcher = new SpeechletRequestDispatcher(speechlet);
+        long phaseStart = System.nanoTime();
+        SpeechletRequestDispatcher dispatcher =
+                new SpeechletRequestDispatcher(speechlet, timeBudget, sessionStore);
         SpeechletResponseEnvelope responseEnvelope =
                 dispatcher.dispatchSpeechletCall(requestEnvelope, session);
+        long phaseEnd = System.nanoTime();
+        metrics.recordPhase(Phase.DISPATCH, phaseEnd - phaseStart);
+
+        if (intercepted) {
+            for (int i = interceptors.length - 1; i >= 0; i--) {
+                interceptors[i].afterDispatch(requestEnvelope, responseEnvelope);
+            }
+            for (SpeechletRequestInterceptor interceptor : interceptors) {
+                interceptor.beforeSerialize(requestEnvelope, responseEnvelope);
+            }
+        }
 
         // Verify response
+        phaseStart = System.nanoTime();
+        final boolean advised = advisoryVerifiers.length != 0 && advisoryVerification.sample();
+        final Executor advisoryExecutor = advised ? advisoryVerification.getExecutor() : null;
+        if (advised && advisoryExecutor == null) {
+            verifyAdvisory(responseEnvelope, session, requestId);
+        }
         for (SpeechletResponseVerifier verifier : responseVerifiers) {
-            if (!verifier.verify(responseEnvelope, session)) {
+            final boolean verified = verifier.verify(responseEnvelope, session);
+            if (!verified) {
+                metrics.recordVerifierRejection(verifier);
                 String message =
                         String.format("Could not validate SpeechletResponse %s using verifier %s, "
                                 + "rejecting response", request.getRequestId(), verifier
@@ -91,6 +411,133 @@ public class SpeechletRequestHandler {
             }
         }
 
-        return responseEnvelope.toJsonBytes();
+        phaseEnd = System.nanoTime();
+        metrics.recordPhase(Phase.RESPONSE_VERIFICATION, phaseEnd - phaseStart);
+
+        phaseStart = phaseEnd;
+        final byte[] serializedSpeechletResponse = responseEnvelope.toJsonBytes();
+        phaseEnd = System.nanoTime();
+        metrics.recordPhase(Phase.SERIALIZATION, phaseEnd - phaseStart);
+
+        if (intercepted) {
+            for (int i = interceptors.length - 1; i >= 0; i--) {
+                interceptors[i].afterSerialize(requestEnvelope, serializedSpeechletResponse);
+            }
+        }
+
+        if (advisoryExecutor != null) {
+            final SpeechletResponseEnvelope advisedEnvelope = responseEnvelope;
+            try {
+                advisoryExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        verifyAdvisory(advisedEnvelope, session, requestId);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                log.debug("Skipping advisory verification of SpeechletResponse {}", requestId);
+            }
+        }
+
+        return serializedSpeechletResponse;
+    }
+
+    /**
+     * Runs the advisory verifiers against the response. Failures are recorded and logged, but
+     * never reject the response.
+     */
+    private void verifyAdvisory(final SpeechletResponseEnvelope responseEnvelope,
+            final Session session, final String requestId) {
+        for (AdvisorySpeechletResponseVerifier verifier : advisoryVerifiers) {
+            boolean verified;
+            try {
+                verified = verifier.verify(responseEnvelope, session);
+            } catch (RuntimeException ex) {
+                log.warn("Advisory verifier {} failed on SpeechletResponse {}", verifier
+                        .getClass()
+                        .getSimpleName(), requestId, ex);
+                verified = false;
+            }
+            if (!verified) {
+                metrics.recordVerifierRejection(verifier);
+                log.warn("Could not validate SpeechletResponse {} using advisory verifier {}",
+                        requestId, verifier.getClass().getSimpleName());
+            }
+        }
+    }
+
+    private static String intentName(final IntentRequest request) {
+        return (request.getIntent() != null) ? request.getIntent().getName() : null;
+    }
+
+    /**
+     * Builder used to construct a new {@code SpeechletRequestHandler}.
+     */
+    public static final class Builder {
+        private List<SpeechletRequestVerifier> requestVerifiers = Collections.emptyList();
+        private List<SpeechletResponseVerifier> responseVerifiers = Collections.emptyList();
+        private List<SpeechletRequestInterceptor> interceptors = Collections.emptyList();
+        private SpeechletTimeBudget timeBudget;
+        private SpeechletRequestCoalescer coalescer;
+        private SpeechletAdvisoryVerification advisoryVerification;
+        private SessionStore sessionStore;
+
+        private Builder() {
+        }
+
+        public Builder withRequestVerifiers(final List<SpeechletRequestVerifier> requestVerifiers) {
+            this.requestVerifiers = requestVerifiers;
+            return this;
+        }
+
+        public Builder withResponseVerifiers(
+                final List<SpeechletResponseVerifier> responseVerifiers) {
+            this.responseVerifiers = responseVerifiers;
+            return this;
+        }
+
+        public Builder withInterceptors(
+                final List<? extends SpeechletRequestInterceptor> interceptors) {
+            this.interceptors =
+                    (interceptors != null) ? new ArrayList<SpeechletRequestInterceptor>(
+                            interceptors) : Collections.<SpeechletRequestInterceptor>emptyList();
+            return this;
+        }
+
+        public Builder withTimeBudget(final SpeechletTimeBudget timeBudget) {
+            this.timeBudget = timeBudget;
+            return this;
+        }
+
+        public Builder withCoalescer(final SpeechletRequestCoalescer coalescer) {
+            this.coalescer = coalescer;
+            return this;
+        }
+
+        public Builder withAdvisoryVerification(
+                final SpeechletAdvisoryVerification advisoryVerification) {
+            this.advisoryVerification = advisoryVerification;
+            return this;
+        }
+
+        public Builder withSessionStore(final SessionStore sessionStore) {
+            this.sessionStore = sessionStore;
+            return this;
+        }
+
+        public SpeechletRequestHandler build() {
+            Validate.notNull(requestVerifiers, "RequestVerifiers must be defined");
+            Validate.notNull(responseVerifiers, "ResponseVerifiers must be defined");
+            if (coalescer != null) {
+                for (SpeechletRequestVerifier verifier : requestVerifiers) {
+                    if (verifier instanceof ReplaySpeechletRequestVerifier) {
+                        throw new IllegalStateException(
+                                "A ReplaySpeechletRequestVerifier cannot be combined with a "
+                                        + "SpeechletRequestCoalescer");
+                    }
+                }
+            }
+            return new SpeechletRequestHandler(this);
+        }
     }
 }
@@ -0,0 +1,177 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * <p>
+ * A {@code SpeechletTimeBudget} bounds how long the {@link SpeechletRequestDispatcher} waits for a
+ * {@code Speechlet} to respond. A default budget applies to every request and can be overridden
+ * per intent name.
+ * </p>
+ *
+ * <p>
+ * When a budget runs out, the dispatcher returns the configured fallback {@link SpeechletResponse}
+ * along with the session attributes as they were received, so that the next turn of the session
+ * starts from a consistent state. The late {@code Speechlet} call is not interrupted and completes
+ * in the background, for instance to fill a cache used by the next request.
+ * </p>
+ *
+ * <p>
+ * Calls are executed on the provided {@code ExecutorService}. By default, a pool of up to
+ * {@value #DEFAULT_MAX_CONCURRENT_DISPATCHES} daemon threads is used. Requests that cannot be
+ * scheduled because all threads are busy immediately receive the fallback response.
+ * </p>
+ *
+ * @see SpeechletRequestDispatcher
+ */
+public final class SpeechletTimeBudget {
+    /**
+     * The default maximum number of concurrent {@code Speechlet} calls, including late calls still
+     * running in the background.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_DISPATCHES = 64;
+
+    private final long defaultBudgetMillis;
+    private final Map<String, Long> intentBudgetsMillis;
+    private final SpeechletResponse fallbackResponse;
+    private final ExecutorService executor;
+
+    /**
+     * Returns a new builder instance used to construct a new {@code SpeechletTimeBudget}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Private constructor to return a new {@code SpeechletTimeBudget} from a {@code Builder}.
+     *
+     * @param builder
+     *            the builder used to construct the {@code SpeechletTimeBudget}.
+     */
+    private SpeechletTimeBudget(final Builder builder) {
+        defaultBudgetMillis = builder.defaultBudgetMillis;
+        intentBudgetsMillis =
+                Collections.unmodifiableMap(new HashMap<String, Long>(builder.intentBudgetsMillis));
+        fallbackResponse = builder.fallbackResponse;
+        executor = (builder.executor != null) ? builder.executor : newDefaultExecutor();
+    }
+
+    /**
+     * Returns the budget that applies to the provided request, in milliseconds.
+     *
+     * @param request
+     *            the request to dispatch
+     * @return the budget in milliseconds, or {@code 0} if the request is not bounded
+     */
+    public long getBudgetMillis(final SpeechletRequest request) {
+        if (request instanceof IntentRequest && !intentBudgetsMillis.isEmpty()) {
+            IntentRequest intentRequest = (IntentRequest) request;
+            if (intentRequest.getIntent() != null) {
+                Long intentBudgetMillis =
+                        intentBudgetsMillis.get(intentRequest.getIntent().getName());
+                if (intentBudgetMillis != null) {
+                    return intentBudgetMillis;
+                }
+            }
+        }
+        return defaultBudgetMillis;
+    }
+
+    /**
+     * Returns the response returned to the Alexa service when a budget runs out.
+     *
+     * @return the fallback response
+     */
+    public SpeechletResponse getFallbackResponse() {
+        return fallbackResponse;
+    }
+
+    /**
+     * Returns the executor running the {@code Speechlet} calls.
+     *
+     * @return the executor
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        return new ThreadPoolExecutor(0, DEFAULT_MAX_CONCURRENT_DISPATCHES, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        Thread thread =
+                                new Thread(runnable, "speechlet-dispatch-"
+                                        + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Builder used to construct a new {@code SpeechletTimeBudget}.
+     */
+    public static final class Builder {
+        private long defaultBudgetMillis = 0;
+        private final Map<String, Long> intentBudgetsMillis = new HashMap<>();
+        private SpeechletResponse fallbackResponse;
+        private ExecutorService executor;
+
+        private Builder() {
+        }
+
+        public Builder withDefaultBudget(final long budget, final TimeUnit unit) {
+            Validate.isTrue(budget >= 0, "A negative budget is not supported");
+            this.defaultBudgetMillis = unit.toMillis(budget);
+            return this;
+        }
+
+        public Builder withIntentBudget(final String intentName, final long budget,
+                final TimeUnit unit) {
+            Validate.isTrue(budget >= 0, "A negative budget is not supported");
+            this.intentBudgetsMillis.put(intentName, unit.toMillis(budget));
+            return this;
+        }
+
+        public Builder withFallbackResponse(final SpeechletResponse fallbackResponse) {
+            this.fallbackResponse = fallbackResponse;
+            return this;
+        }
+
+        public Builder withExecutor(final ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public SpeechletTimeBudget build() {
+            Validate.notNull(fallbackResponse, "FallbackResponse must be defined");
+            return new SpeechletTimeBudget(this);
+        }
+    }
+}
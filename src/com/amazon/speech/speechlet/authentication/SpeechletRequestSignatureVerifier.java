@@ -71,9 +71,8 @@ public final class SpeechletRequestSignatureVerifier {
         }
 
         try {
-            X509Certificate signingCertificate;
-            if (CERTIFICATE_CACHE.containsKey(signingCertificateChainUrl)) {
-                signingCertificate = CERTIFICATE_CACHE.get(signingCertificateChainUrl);
+            X509Certificate signingCertificate = CERTIFICATE_CACHE.get(signingCertificateChainUrl);
+            if (signingCertificate != null) {
                 /*
                  * check the before/after dates on the certificate are still valid for the present
                  * time
@@ -0,0 +1,100 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.interceptor;
+
+import com.amazon.speech.json.SpeechletRequestEnvelope;
+import com.amazon.speech.json.SpeechletResponseEnvelope;
+
+/**
+ * Interceptor invoked by the {@link com.amazon.speech.speechlet.SpeechletRequestHandler} before
+ * and after each phase of a {@code Speechlet} invocation: parse, verify, dispatch and serialize.
+ * <p>
+ * Interceptors are invoked on the thread handling the request. The {@code before} hooks are
+ * invoked in registration order and the {@code after} hooks in reverse registration order. An
+ * {@code after} hook is only invoked if the corresponding phase completed successfully. Extend
+ * {@link SpeechletRequestInterceptorAdapter} to implement only the hooks of interest.
+ *
+ * @see SpeechletRequestInterceptorAdapter
+ */
+public interface SpeechletRequestInterceptor {
+    /**
+     * Invoked before the serialized request is parsed into a {@link SpeechletRequestEnvelope}.
+     *
+     * @param serializedSpeechletRequest
+     *            the request coming from the Alexa service
+     */
+    void beforeParse(byte[] serializedSpeechletRequest);
+
+    /**
+     * Invoked after the serialized request was parsed.
+     *
+     * @param requestEnvelope
+     *            the parsed request envelope
+     */
+    void afterParse(SpeechletRequestEnvelope requestEnvelope);
+
+    /**
+     * Invoked before the request verifiers are run.
+     *
+     * @param requestEnvelope
+     *            the request envelope to verify
+     */
+    void beforeVerify(SpeechletRequestEnvelope requestEnvelope);
+
+    /**
+     * Invoked after all the request verifiers accepted the request.
+     *
+     * @param requestEnvelope
+     *            the verified request envelope
+     */
+    void afterVerify(SpeechletRequestEnvelope requestEnvelope);
+
+    /**
+     * Invoked before the request is dispatched to the {@code Speechlet}.
+     *
+     * @param requestEnvelope
+     *            the request envelope to dispatch
+     */
+    void beforeDispatch(SpeechletRequestEnvelope requestEnvelope);
+
+    /**
+     * Invoked after the {@code Speechlet} returned.
+     *
+     * @param requestEnvelope
+     *            the dispatched request envelope
+     * @param responseEnvelope
+     *            the response envelope generated by the {@code Speechlet}
+     */
+    void afterDispatch(SpeechletRequestEnvelope requestEnvelope,
+            SpeechletResponseEnvelope responseEnvelope);
+
+    /**
+     * Invoked before the response verifiers are run and the response is serialized.
+     *
+     * @param requestEnvelope
+     *            the request envelope
+     * @param responseEnvelope
+     *            the response envelope to serialize
+     */
+    void beforeSerialize(SpeechletRequestEnvelope requestEnvelope,
+            SpeechletResponseEnvelope responseEnvelope);
+
+    /**
+     * Invoked after the response was serialized.
+     *
+     * @param requestEnvelope
+     *            the request envelope
+     * @param serializedSpeechletResponse
+     *            the response bytes returned to the Alexa service
+     */
+    void afterSerialize(SpeechletRequestEnvelope requestEnvelope,
+            byte[] serializedSpeechletResponse);
+}
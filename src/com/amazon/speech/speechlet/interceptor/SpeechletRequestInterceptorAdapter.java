@@ -0,0 +1,55 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.interceptor;
+
+import com.amazon.speech.json.SpeechletRequestEnvelope;
+import com.amazon.speech.json.SpeechletResponseEnvelope;
+
+/**
+ * An abstract {@link SpeechletRequestInterceptor} with empty hooks. Extend this class and
+ * override only the hooks of interest.
+ */
+public abstract class SpeechletRequestInterceptorAdapter implements SpeechletRequestInterceptor {
+    @Override
+    public void beforeParse(byte[] serializedSpeechletRequest) {
+    }
+
+    @Override
+    public void afterParse(SpeechletRequestEnvelope requestEnvelope) {
+    }
+
+    @Override
+    public void beforeVerify(SpeechletRequestEnvelope requestEnvelope) {
+    }
+
+    @Override
+    public void afterVerify(SpeechletRequestEnvelope requestEnvelope) {
+    }
+
+    @Override
+    public void beforeDispatch(SpeechletRequestEnvelope requestEnvelope) {
+    }
+
+    @Override
+    public void afterDispatch(SpeechletRequestEnvelope requestEnvelope,
+            SpeechletResponseEnvelope responseEnvelope) {
+    }
+
+    @Override
+    public void beforeSerialize(SpeechletRequestEnvelope requestEnvelope,
+            SpeechletResponseEnvelope responseEnvelope) {
+    }
+
+    @Override
+    public void afterSerialize(SpeechletRequestEnvelope requestEnvelope,
+            byte[] serializedSpeechletResponse) {
+    }
+}
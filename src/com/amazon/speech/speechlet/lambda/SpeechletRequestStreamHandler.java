@@ -14,6 +14,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
@@ -22,11 +24,14 @@ import com.amazon.speech.speechlet.Speechlet;
 import com.amazon.speech.speechlet.SpeechletException;
 import com.amazon.speech.speechlet.SpeechletRequestHandler;
 import com.amazon.speech.speechlet.SpeechletRequestHandlerException;
+import com.amazon.speech.speechlet.interceptor.SpeechletRequestInterceptor;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics;
 import com.amazon.speech.speechlet.verifier.ApplicationIdSpeechletRequestVerifier;
 import com.amazon.speech.speechlet.verifier.CardSpeechletResponseVerifier;
 import com.amazon.speech.speechlet.verifier.OutputSpeechSpeechletResponseVerifier;
 import com.amazon.speech.speechlet.verifier.ResponseSizeSpeechletResponseVerifier;
 import com.amazon.speech.speechlet.verifier.SpeechletRequestVerifier;
+import com.amazon.speech.speechlet.verifier.SpeechletResponseVerifier;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 
@@ -62,14 +67,67 @@ public abstract class SpeechletRequestStreamHandler implements RequestStreamHand
      *            requests are intended for your service
      */
     public SpeechletRequestStreamHandler(Speechlet speechlet, Set<String> supportedApplicationIds) {
+        this(speechlet, supportedApplicationIds, Collections
+                .<SpeechletRequestInterceptor>emptyList());
+    }
+
+    /**
+     * When extending this class, use a zero argument constructor and pass the appropriate
+     * {@code Speechlet}, {@code Set} of supported {@code ApplicationId}s and interceptors to this
+     * method.
+     * 
+     * @param speechlet
+     *            the {@code Speechlet} that handles the requests
+     * @param supportedApplicationIds
+     *            a {@code Set} of supported {@code ApplicationId}s used to validate that the
+     *            requests are intended for your service
+     * @param interceptors
+     *            the interceptors invoked around each phase of a {@code Speechlet} call, in order
+     */
+    public SpeechletRequestStreamHandler(Speechlet speechlet, Set<String> supportedApplicationIds,
+            List<? extends SpeechletRequestInterceptor> interceptors) {
+        this(speechlet, supportedApplicationIds, SpeechletRequestHandler.builder()
+                .withInterceptors(interceptors));
+    }
+
+    /**
+     * When extending this class, use a zero argument constructor and pass the appropriate
+     * {@code Speechlet}, {@code Set} of supported {@code ApplicationId}s and request handler
+     * builder to this method. The builder can be used to install interceptors or a time budget;
+     * its request and response verifiers are replaced with the ones configured by this class.
+     * 
+     * @param speechlet
+     *            the {@code Speechlet} that handles the requests
+     * @param supportedApplicationIds
+     *            a {@code Set} of supported {@code ApplicationId}s used to validate that the
+     *            requests are intended for your service
+     * @param handlerBuilder
+     *            the builder of the request handler
+     */
+    public SpeechletRequestStreamHandler(Speechlet speechlet, Set<String> supportedApplicationIds,
+            SpeechletRequestHandler.Builder handlerBuilder) {
         this.speechlet = speechlet;
         speechletRequestHandler =
-                new SpeechletRequestHandler(
-                        Arrays.<SpeechletRequestVerifier>asList(new ApplicationIdSpeechletRequestVerifier(
-                                supportedApplicationIds)), Arrays.asList(
-                                new ResponseSizeSpeechletResponseVerifier(),
-                                new OutputSpeechSpeechletResponseVerifier(),
-                                new CardSpeechletResponseVerifier()));
+                handlerBuilder
+                        .withRequestVerifiers(
+                                Arrays.<SpeechletRequestVerifier>asList(new ApplicationIdSpeechletRequestVerifier(
+                                        supportedApplicationIds)))
+                        .withResponseVerifiers(
+                                Arrays.<SpeechletResponseVerifier>asList(
+                                        new ResponseSizeSpeechletResponseVerifier(),
+                                        new OutputSpeechSpeechletResponseVerifier(),
+                                        new CardSpeechletResponseVerifier()))
+                        .build();
+    }
+
+    /**
+     * Returns the metrics recorded while handling requests. They are kept for the lifetime of the
+     * Lambda container.
+     *
+     * @return the metrics of this handler
+     */
+    public SpeechletMetrics getMetrics() {
+        return speechletRequestHandler.getMetrics();
     }
 
     /**
@@ -0,0 +1,271 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Records per-phase latencies, per-request-type and per-intent latencies, throughput and verifier
+ * rejections of a {@code SpeechletRequestHandler}. Recording never locks and, once a request type
+ * or intent name has been seen, never allocates.
+ * <p>
+ * The recorded values can be pulled through the accessors of this class or exported through JMX
+ * with {@link #registerMBean(String)}.
+ */
+public class SpeechletMetrics implements SpeechletMetricsMXBean {
+    /**
+     * The JMX domain under which the metrics are registered.
+     */
+    public static final String JMX_DOMAIN = "com.amazon.speech";
+
+    /**
+     * Limits the number of distinct request types and intent names tracked, since both come from
+     * the request payload. Additional names are recorded under {@value #OTHER}.
+     */
+    private static final int MAX_TRACKED_NAMES = 256;
+    private static final String OTHER = "_other";
+
+    /**
+     * The phases of a {@code Speechlet} call.
+     */
+    public enum Phase {
+        PRE_SCAN,
+        PARSE,
+        SIGNATURE_VERIFICATION,
+        REQUEST_VERIFICATION,
+        DISPATCH,
+        RESPONSE_VERIFICATION,
+        SERIALIZATION
+    }
+
+    private final LatencyHistogram[] phaseLatencies = new LatencyHistogram[Phase.values().length];
+    private final ConcurrentMap<String, LatencyHistogram> requestTypeLatencies =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> intentLatencies =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> verifierRejections = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    public SpeechletMetrics() {
+        for (int i = 0; i < phaseLatencies.length; i++) {
+            phaseLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // ---------
+    // Recording
+
+    /**
+     * Records the latency of a single phase.
+     *
+     * @param phase
+     *            the phase
+     * @param nanos
+     *            the latency in nanoseconds
+     */
+    public void recordPhase(final Phase phase, final long nanos) {
+        phaseLatencies[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records a successfully handled request.
+     *
+     * @param requestType
+     *            the simple class name of the request
+     * @param intentName
+     *            the intent name for intent requests, {@code null} otherwise
+     * @param nanos
+     *            the end-to-end latency in nanoseconds
+     */
+    public void recordRequest(final String requestType, final String intentName, final long nanos) {
+        requestCount.incrementAndGet();
+        histogram(requestTypeLatencies, requestType).record(nanos);
+        if (intentName != null) {
+            histogram(intentLatencies, intentName).record(nanos);
+        }
+    }
+
+    /**
+     * Records a request that failed with an exception.
+     */
+    public void recordError() {
+        errorCount.incrementAndGet();
+    }
+
+    /**
+     * Records the rejection of a request or response by a verifier.
+     *
+     * @param verifier
+     *            the rejecting verifier
+     */
+    public void recordVerifierRejection(final Object verifier) {
+        final String name = verifier.getClass().getSimpleName();
+        AtomicLong counter = verifierRejections.get(name);
+        if (counter == null) {
+            final AtomicLong newCounter = new AtomicLong();
+            counter = verifierRejections.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    private static LatencyHistogram histogram(final ConcurrentMap<String, LatencyHistogram> map,
+            final String name) {
+        String key = (name != null) ? name : OTHER;
+        LatencyHistogram histogram = map.get(key);
+        if (histogram == null && map.size() >= MAX_TRACKED_NAMES) {
+            key = OTHER;
+            histogram = map.get(key);
+        }
+        if (histogram == null) {
+            final LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = map.putIfAbsent(key, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    // --------
+    // Pull API
+
+    /**
+     * Returns the latency histogram of the provided phase.
+     *
+     * @param phase
+     *            the phase
+     * @return the latency histogram
+     */
+    public LatencyHistogram getPhaseLatency(final Phase phase) {
+        return phaseLatencies[phase.ordinal()];
+    }
+
+    /**
+     * Returns the end-to-end latency histograms keyed by request type.
+     *
+     * @return an unmodifiable view of the histograms
+     */
+    public Map<String, LatencyHistogram> getRequestTypeLatencies() {
+        return Collections.unmodifiableMap(requestTypeLatencies);
+    }
+
+    /**
+     * Returns the end-to-end latency histograms of intent requests keyed by intent name.
+     *
+     * @return an unmodifiable view of the histograms
+     */
+    public Map<String, LatencyHistogram> getIntentLatencies() {
+        return Collections.unmodifiableMap(intentLatencies);
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    @Override
+    public Map<String, Long> getVerifierRejections() {
+        final Map<String, Long> rejections = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : verifierRejections.entrySet()) {
+            rejections.put(entry.getKey(), entry.getValue().get());
+        }
+        return rejections;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMeanMicros() {
+        final Map<String, Long> means = new TreeMap<>();
+        for (Map.Entry<Phase, LatencyHistogram> entry : phaseMap().entrySet()) {
+            means.put(entry.getKey().name(), entry.getValue().getMean(TimeUnit.MICROSECONDS));
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP99Micros() {
+        final Map<String, Long> percentiles = new TreeMap<>();
+        for (Map.Entry<Phase, LatencyHistogram> entry : phaseMap().entrySet()) {
+            percentiles.put(entry.getKey().name(), p99Micros(entry.getValue()));
+        }
+        return percentiles;
+    }
+
+    @Override
+    public Map<String, Long> getRequestTypeP99Micros() {
+        return p99Micros(requestTypeLatencies);
+    }
+
+    @Override
+    public Map<String, Long> getIntentP99Micros() {
+        return p99Micros(intentLatencies);
+    }
+
+    private Map<Phase, LatencyHistogram> phaseMap() {
+        final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, phaseLatencies[phase.ordinal()]);
+        }
+        return phases;
+    }
+
+    private static Map<String, Long> p99Micros(final Map<String, LatencyHistogram> histograms) {
+        final Map<String, Long> percentiles = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            percentiles.put(entry.getKey(), p99Micros(entry.getValue()));
+        }
+        return percentiles;
+    }
+
+    private static long p99Micros(final LatencyHistogram histogram) {
+        return histogram.getPercentile(99.0, TimeUnit.MICROSECONDS);
+    }
+
+    // ---
+    // JMX
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * {@code com.amazon.speech:type=SpeechletMetrics,name=<name>}.
+     *
+     * @param name
+     *            the name distinguishing this handler from others in the same JVM
+     * @return the name under which the metrics were registered
+     * @throws JMException
+     *             if the name is invalid or already registered
+     */
+    public ObjectName registerMBean(final String name) throws JMException {
+        final ObjectName objectName =
+                new ObjectName(JMX_DOMAIN + ":type=SpeechletMetrics,name="
+                        + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX management interface exposing the {@link SpeechletMetrics} of a
+ * {@code SpeechletRequestHandler}. All latencies are reported in microseconds.
+ *
+ * @see SpeechletMetrics#registerMBean(String)
+ */
+public interface SpeechletMetricsMXBean {
+    /**
+     * @return the number of requests handled successfully
+     */
+    long getRequestCount();
+
+    /**
+     * @return the number of requests that failed with an exception
+     */
+    long getErrorCount();
+
+    /**
+     * @return the mean latency of each phase, keyed by phase name
+     */
+    Map<String, Long> getPhaseMeanMicros();
+
+    /**
+     * @return the 99th percentile latency of each phase, keyed by phase name
+     */
+    Map<String, Long> getPhaseP99Micros();
+
+    /**
+     * @return the 99th percentile end-to-end latency, keyed by request type
+     */
+    Map<String, Long> getRequestTypeP99Micros();
+
+    /**
+     * @return the 99th percentile end-to-end latency of intent requests, keyed by intent name
+     */
+    Map<String, Long> getIntentP99Micros();
+
+    /**
+     * @return the number of rejections, keyed by verifier class name
+     */
+    Map<String, Long> getVerifierRejections();
+}
@@ -0,0 +1,248 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazon.speech.Sdk;
+import com.amazon.speech.json.SpeechletRequestPreScan;
+import com.amazon.speech.speechlet.Speechlet;
+import com.amazon.speech.speechlet.SpeechletRequestHandler;
+import com.amazon.speech.speechlet.SpeechletRequestHandlerException;
+import com.amazon.speech.speechlet.authentication.SpeechletRequestSignatureVerifier;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics.Phase;
+import com.amazon.speech.speechlet.verifier.ApplicationIdSpeechletRequestVerifier;
+import com.amazon.speech.speechlet.verifier.CardSpeechletResponseVerifier;
+import com.amazon.speech.speechlet.verifier.OutputSpeechSpeechletResponseVerifier;
+import com.amazon.speech.speechlet.verifier.ReplaySpeechletRequestVerifier;
+import com.amazon.speech.speechlet.verifier.ResponseSizeSpeechletResponseVerifier;
+import com.amazon.speech.speechlet.verifier.SpeechletRequestVerifier;
+import com.amazon.speech.speechlet.verifier.SpeechletResponseVerifier;
+import com.amazon.speech.speechlet.verifier.TimestampSpeechletRequestVerifier;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * <p>
+ * A Java EE servlet hosting several {@code Speechlet}s, each registered under the application ID
+ * of its Alexa skill. Use this class instead of {@link SpeechletServlet} to serve many skills from
+ * a single web service.
+ * </p>
+ * <p>
+ * Each incoming request is routed with a single lookup on the application ID extracted by a
+ * {@link SpeechletRequestPreScan}, before the envelope is fully parsed. Every registered skill
+ * gets its own {@link SpeechletRequestHandler}, which verifies that the bound envelope carries the
+ * application ID the request was routed on. The signing certificate cache, the JSON object mappers
+ * and the servlet container thread pool are shared by all skills.
+ * </p>
+ * <p>
+ * Signature, timestamp and replay verification are configured with the same system properties as
+ * {@link SpeechletServlet}.
+ * </p>
+ *
+ * @see #addSpeechlet(String, Speechlet)
+ */
+public class SpeechletRouterServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(SpeechletRouterServlet.class);
+    private static final long serialVersionUID = 5367321946203398731L;
+
+    /**
+     * The response verifiers are stateless and shared by all the skills.
+     */
+    private static final List<SpeechletResponseVerifier> RESPONSE_VERIFIERS = Collections
+            .unmodifiableList(Arrays.<SpeechletResponseVerifier>asList(
+                    new ResponseSizeSpeechletResponseVerifier(),
+                    new OutputSpeechSpeechletResponseVerifier(),
+                    new CardSpeechletResponseVerifier()));
+
+    private final transient ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final transient TimestampSpeechletRequestVerifier timestampVerifier;
+    private final transient ReplaySpeechletRequestVerifier replayVerifier;
+    private final boolean disableRequestSignatureCheck;
+
+    public SpeechletRouterServlet() {
+        // An invalid value or null will turn signature checking on.
+        disableRequestSignatureCheck =
+                Boolean.parseBoolean(System
+                        .getProperty(Sdk.DISABLE_REQUEST_SIGNATURE_CHECK_SYSTEM_PROPERTY));
+        timestampVerifier = SpeechletServlet.getTimetampVerifier();
+        // Request IDs are unique across skills, so a single replay verifier is shared.
+        replayVerifier =
+                (timestampVerifier != null) ? SpeechletServlet.getReplayVerifier(timestampVerifier)
+                        : null;
+    }
+
+    /**
+     * Registers the {@code Speechlet} serving requests for the provided application ID.
+     *
+     * @param applicationId
+     *            the application ID of the skill
+     * @param speechlet
+     *            the {@code Speechlet} handling the requests of the skill
+     */
+    public void addSpeechlet(final String applicationId, final Speechlet speechlet) {
+        addSpeechlet(applicationId, speechlet, SpeechletRequestHandler.builder());
+    }
+
+    /**
+     * Registers the {@code Speechlet} serving requests for the provided application ID, with a
+     * request handler built from the provided builder, for instance to install interceptors or a
+     * time budget. The request and response verifiers of the builder are replaced with the ones
+     * configured by this servlet.
+     *
+     * @param applicationId
+     *            the application ID of the skill
+     * @param speechlet
+     *            the {@code Speechlet} handling the requests of the skill
+     * @param handlerBuilder
+     *            the builder of the request handler of the skill
+     * @throws IllegalArgumentException
+     *             if a {@code Speechlet} is already registered for the application ID
+     */
+    public void addSpeechlet(final String applicationId, final Speechlet speechlet,
+            final SpeechletRequestHandler.Builder handlerBuilder) {
+        Validate.notBlank(applicationId, "ApplicationId must be defined");
+        Validate.notNull(speechlet, "Speechlet must be defined");
+
+        List<SpeechletRequestVerifier> requestVerifiers = new ArrayList<SpeechletRequestVerifier>();
+        requestVerifiers.add(new ApplicationIdSpeechletRequestVerifier(Collections
+                .singleton(applicationId)));
+        if (timestampVerifier != null) {
+            requestVerifiers.add(timestampVerifier);
+        }
+        if (replayVerifier != null) {
+            requestVerifiers.add(replayVerifier);
+        }
+
+        SpeechletRequestHandler handler =
+                handlerBuilder
+                        .withRequestVerifiers(requestVerifiers)
+                        .withResponseVerifiers(RESPONSE_VERIFIERS)
+                        .build();
+
+        if (routes.putIfAbsent(applicationId, new Route(speechlet, handler)) != null) {
+            throw new IllegalArgumentException("A Speechlet is already registered for application ID "
+                    + applicationId);
+        }
+    }
+
+    /**
+     * Returns the metrics recorded while handling the requests of the provided application ID.
+     *
+     * @param applicationId
+     *            the application ID of the skill
+     * @return the metrics of the skill, or {@code null} if no {@code Speechlet} is registered for
+     *         the application ID
+     */
+    public SpeechletMetrics getMetrics(final String applicationId) {
+        Route route = routes.get(applicationId);
+        return (route != null) ? route.handler.getMetrics() : null;
+    }
+
+    /**
+     * Handles a POST request. Routes the request to the {@code Speechlet} registered for its
+     * application ID and invokes the right method on it.
+     *
+     * @param request
+     *            the object that contains the request the client has made of the servlet
+     * @param response
+     *            object that contains the response the servlet sends to the client
+     * @throws IOException
+     *             if an input or output error is detected when the servlet handles the request
+     */
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException {
+        byte[] serializedSpeechletRequest = IOUtils.toByteArray(request.getInputStream());
+        byte[] outputBytes = null;
+
+        try {
+            final SpeechletRequestPreScan preScan;
+            try {
+                preScan = SpeechletRequestPreScan.scan(serializedSpeechletRequest);
+            } catch (JsonProcessingException ex) {
+                throw new SpeechletRequestHandlerException("Malformed request, rejecting request",
+                        ex);
+            }
+            String applicationId = preScan.getApplicationId();
+            Route route = (applicationId != null) ? routes.get(applicationId) : null;
+            if (route == null) {
+                throw new SpeechletRequestHandlerException(String.format(
+                        "No Speechlet is registered for application ID %s, rejecting request",
+                        applicationId));
+            }
+
+            if (disableRequestSignatureCheck) {
+                log.warn("Warning: Speechlet request signature verification has been disabled!");
+            } else {
+                // Verify the authenticity of the request by checking the provided signature &
+                // certificate.
+                long signatureStart = System.nanoTime();
+                SpeechletRequestSignatureVerifier.checkRequestSignature(serializedSpeechletRequest,
+                        request.getHeader(Sdk.SIGNATURE_REQUEST_HEADER),
+                        request.getHeader(Sdk.SIGNATURE_CERTIFICATE_CHAIN_URL_REQUEST_HEADER));
+                route.handler.getMetrics().recordPhase(Phase.SIGNATURE_VERIFICATION,
+                        System.nanoTime() - signatureStart);
+            }
+
+            outputBytes =
+                    route.handler.handleSpeechletCall(route.speechlet, serializedSpeechletRequest,
+                            preScan);
+        } catch (SpeechletRequestHandlerException | SecurityException ex) {
+            int statusCode = HttpServletResponse.SC_BAD_REQUEST;
+            log.error("Exception occurred in doPost, returning status code {}", statusCode, ex);
+            response.sendError(statusCode, ex.getMessage());
+            return;
+        } catch (Exception ex) {
+            int statusCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            log.error("Exception occurred in doPost, returning status code {}", statusCode, ex);
+            response.sendError(statusCode, ex.getMessage());
+            return;
+        }
+
+        // Generate JSON and send back the response
+        response.setContentType("application/json");
+        response.setStatus(HttpServletResponse.SC_OK);
+        try (final OutputStream out = response.getOutputStream()) {
+            response.setContentLength(outputBytes.length);
+            out.write(outputBytes);
+        }
+    }
+
+    /**
+     * A registered skill.
+     */
+    private static final class Route {
+        private final Speechlet speechlet;
+        private final SpeechletRequestHandler handler;
+
+        private Route(final Speechlet speechlet, final SpeechletRequestHandler handler) {
+            this.speechlet = speechlet;
+            this.handler = handler;
+        }
+    }
+}
@@ -34,11 +34,16 @@ import com.amazon.speech.speechlet.Speechlet;
 import com.amazon.speech.speechlet.SpeechletRequestHandler;
 import com.amazon.speech.speechlet.SpeechletRequestHandlerException;
 import com.amazon.speech.speechlet.authentication.SpeechletRequestSignatureVerifier;
+import com.amazon.speech.speechlet.interceptor.SpeechletRequestInterceptor;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics;
+import com.amazon.speech.speechlet.metrics.SpeechletMetrics.Phase;
 import com.amazon.speech.speechlet.verifier.ApplicationIdSpeechletRequestVerifier;
 import com.amazon.speech.speechlet.verifier.CardSpeechletResponseVerifier;
 import com.amazon.speech.speechlet.verifier.OutputSpeechSpeechletResponseVerifier;
+import com.amazon.speech.speechlet.verifier.ReplaySpeechletRequestVerifier;
 import com.amazon.speech.speechlet.verifier.ResponseSizeSpeechletResponseVerifier;
 import com.amazon.speech.speechlet.verifier.SpeechletRequestVerifier;
+import com.amazon.speech.speechlet.verifier.SpeechletResponseVerifier;
 import com.amazon.speech.speechlet.verifier.TimestampSpeechletRequestVerifier;
 
 /**
@@ -64,6 +69,29 @@ public class SpeechletServlet extends HttpServlet {
     private final boolean disableRequestSignatureCheck;
 
     public SpeechletServlet() {
+        this(Collections.<SpeechletRequestInterceptor>emptyList());
+    }
+
+    /**
+     * Constructs a new servlet whose {@link SpeechletRequestHandler} invokes the provided
+     * interceptors around each phase of a {@code Speechlet} call.
+     *
+     * @param interceptors
+     *            the interceptors to install, in invocation order
+     */
+    public SpeechletServlet(final List<? extends SpeechletRequestInterceptor> interceptors) {
+        this(SpeechletRequestHandler.builder().withInterceptors(interceptors));
+    }
+
+    /**
+     * Constructs a new servlet whose {@link SpeechletRequestHandler} is built from the provided
+     * builder, for instance to install interceptors or a time budget. The request and response
+     * verifiers of the builder are replaced with the ones configured by this servlet.
+     *
+     * @param handlerBuilder
+     *            the builder of the request handler
+     */
+    public SpeechletServlet(final SpeechletRequestHandler.Builder handlerBuilder) {
         // An invalid value or null will turn signature checking on.
         disableRequestSignatureCheck =
                 Boolean.parseBoolean(System
@@ -74,13 +102,21 @@ public class SpeechletServlet extends HttpServlet {
         TimestampSpeechletRequestVerifier timestampVerifier = getTimetampVerifier();
         if (timestampVerifier != null) {
             requestVerifiers.add(timestampVerifier);
+            ReplaySpeechletRequestVerifier replayVerifier = getReplayVerifier(timestampVerifier);
+            if (replayVerifier != null) {
+                requestVerifiers.add(replayVerifier);
+            }
         }
 
         speechletRequestHandler =
-                new SpeechletRequestHandler(requestVerifiers, Arrays.asList(
-                        new ResponseSizeSpeechletResponseVerifier(),
-                        new OutputSpeechSpeechletResponseVerifier(),
-                        new CardSpeechletResponseVerifier()));
+                handlerBuilder
+                        .withRequestVerifiers(requestVerifiers)
+                        .withResponseVerifiers(
+                                Arrays.<SpeechletResponseVerifier>asList(
+                                        new ResponseSizeSpeechletResponseVerifier(),
+                                        new OutputSpeechSpeechletResponseVerifier(),
+                                        new CardSpeechletResponseVerifier()))
+                        .build();
     }
 
     /**
@@ -106,9 +142,12 @@ public class SpeechletServlet extends HttpServlet {
             } else {
                 // Verify the authenticity of the request by checking the provided signature &
                 // certificate.
+                long signatureStart = System.nanoTime();
                 SpeechletRequestSignatureVerifier.checkRequestSignature(serializedSpeechletRequest,
                         request.getHeader(Sdk.SIGNATURE_REQUEST_HEADER),
                         request.getHeader(Sdk.SIGNATURE_CERTIFICATE_CHAIN_URL_REQUEST_HEADER));
+                speechletRequestHandler.getMetrics().recordPhase(Phase.SIGNATURE_VERIFICATION,
+                        System.nanoTime() - signatureStart);
             }
 
             outputBytes =
@@ -135,6 +174,15 @@ public class SpeechletServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Returns the metrics recorded while handling requests, including signature verification.
+     *
+     * @return the metrics of this servlet
+     */
+    public SpeechletMetrics getMetrics() {
+        return speechletRequestHandler.getMetrics();
+    }
+
     /**
      * Returns the {@code Speechlet} object that this servlet uses.
      *
@@ -184,7 +232,7 @@ public class SpeechletServlet extends HttpServlet {
      *
      * @return a configured TimestampSpeechletRequestVerifier or null
      */
-    private TimestampSpeechletRequestVerifier getTimetampVerifier() {
+    static TimestampSpeechletRequestVerifier getTimetampVerifier() {
         String timestampToleranceAsString =
                 System.getProperty(Sdk.TIMESTAMP_TOLERANCE_SYSTEM_PROPERTY);
 
@@ -203,4 +251,28 @@ public class SpeechletServlet extends HttpServlet {
 
         return null;
     }
+
+    /**
+     * Returns a {@link ReplaySpeechletRequestVerifier} using the tolerance of the provided
+     * timestamp verifier if enabled by the system property
+     * {@link Sdk#REPLAY_PROTECTION_SYSTEM_PROPERTY}, or {@code null} otherwise.
+     *
+     * @param timestampVerifier
+     *            the configured timestamp verifier
+     * @return a configured ReplaySpeechletRequestVerifier or null
+     */
+    static ReplaySpeechletRequestVerifier getReplayVerifier(
+            final TimestampSpeechletRequestVerifier timestampVerifier) {
+        if (!Boolean.parseBoolean(System.getProperty(Sdk.REPLAY_PROTECTION_SYSTEM_PROPERTY))) {
+            return null;
+        }
+
+        long tolerance = timestampVerifier.getTolerance(TimeUnit.MILLISECONDS);
+        if (tolerance <= 0) {
+            log.warn("Replay protection requires a positive timestamp tolerance, "
+                    + "disabling replay protection");
+            return null;
+        }
+        return new ReplaySpeechletRequestVerifier(tolerance, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,189 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.store;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Validate;
+
+import com.amazon.speech.json.SessionAttributeCodec;
+
+/**
+ * <p>
+ * A {@link SessionStore} keeping the attributes of the most recently used sessions in memory. The
+ * least recently used session is evicted once {@value #DEFAULT_MAX_ENTRIES} sessions are stored,
+ * and sessions not used for {@value #DEFAULT_TIME_TO_LIVE_MINUTES} minutes are expired. Both
+ * limits can be configured.
+ * </p>
+ *
+ * <p>
+ * The attributes are kept serialized to JSON, so that the values a {@code Speechlet} modifies are
+ * never the stored ones. Each load deserializes a new copy of the attributes.
+ * </p>
+ *
+ * <p>
+ * An optional backend {@code SessionStore}, for instance a persistent one shared by several hosts,
+ * can be provided. Saves and removals are then written through to the backend, and sessions
+ * missing from memory are loaded from the backend.
+ * </p>
+ */
+public final class InMemorySessionStore implements SessionStore {
+    /**
+     * The default maximum number of sessions kept in memory.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /**
+     * The default time after which an unused session is expired, in minutes.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_MINUTES = 30;
+
+    private final Map<String, StoredSession> entries;
+    private final long timeToLiveMillis;
+    private final SessionStore backend;
+
+    /**
+     * Returns a new builder instance used to construct a new {@code InMemorySessionStore}.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Private constructor to return a new {@code InMemorySessionStore} from a {@code Builder}.
+     *
+     * @param builder
+     *            the builder used to construct the {@code InMemorySessionStore}.
+     */
+    private InMemorySessionStore(final Builder builder) {
+        final int maxEntries = builder.maxEntries;
+        entries = new LinkedHashMap<String, StoredSession>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, StoredSession> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        timeToLiveMillis = builder.timeToLiveMillis;
+        backend = builder.backend;
+    }
+
+    @Override
+    public Map<String, Object> load(final String sessionId) {
+        final long now = System.currentTimeMillis();
+        synchronized (entries) {
+            final StoredSession entry = entries.get(sessionId);
+            if (entry != null) {
+                if (now - entry.lastAccess <= timeToLiveMillis) {
+                    entry.lastAccess = now;
+                    return SessionAttributeCodec.readAttributes(entry.attributes);
+                }
+                entries.remove(sessionId);
+            }
+        }
+
+        if (backend == null) {
+            return null;
+        }
+        final Map<String, Object> attributes = backend.load(sessionId);
+        if (attributes != null) {
+            put(sessionId, SessionAttributeCodec.writeAttributes(attributes), now);
+        }
+        return attributes;
+    }
+
+    @Override
+    public void save(final String sessionId, final Map<String, Object> attributes) {
+        final byte[] savedAttributes = SessionAttributeCodec.writeAttributes(attributes);
+        put(sessionId, savedAttributes, System.currentTimeMillis());
+        if (backend != null) {
+            backend.save(sessionId, SessionAttributeCodec.readAttributes(savedAttributes));
+        }
+    }
+
+    @Override
+    public void remove(final String sessionId) {
+        synchronized (entries) {
+            entries.remove(sessionId);
+        }
+        if (backend != null) {
+            backend.remove(sessionId);
+        }
+    }
+
+    /**
+     * Returns the number of sessions kept in memory, including expired sessions not yet evicted.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void put(final String sessionId, final byte[] attributes, final long now) {
+        synchronized (entries) {
+            entries.put(sessionId, new StoredSession(attributes, now));
+        }
+    }
+
+    /**
+     * The serialized attributes of a session and the last time they were used.
+     */
+    private static final class StoredSession {
+        private final byte[] attributes;
+        private long lastAccess;
+
+        private StoredSession(final byte[] attributes, final long lastAccess) {
+            this.attributes = attributes;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Builder used to construct a new {@code InMemorySessionStore}.
+     */
+    public static final class Builder {
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private long timeToLiveMillis = TimeUnit.MINUTES.toMillis(DEFAULT_TIME_TO_LIVE_MINUTES);
+        private SessionStore backend;
+
+        private Builder() {
+        }
+
+        public Builder withMaxEntries(final int maxEntries) {
+            Validate.isTrue(maxEntries > 0, "A positive maximum number of entries is required");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder withTimeToLive(final long timeToLive, final TimeUnit unit) {
+            Validate.isTrue(timeToLive > 0, "A positive time to live is required");
+            this.timeToLiveMillis = unit.toMillis(timeToLive);
+            return this;
+        }
+
+        public Builder withBackend(final SessionStore backend) {
+            this.backend = backend;
+            return this;
+        }
+
+        public InMemorySessionStore build() {
+            return new InMemorySessionStore(this);
+        }
+    }
+}
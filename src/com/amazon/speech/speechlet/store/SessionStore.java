@@ -0,0 +1,67 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.store;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * A {@code SessionStore} keeps the attributes of a {@link com.amazon.speech.speechlet.Session}
+ * server-side, keyed by session ID. When a {@code SpeechletRequestHandler} is configured with a
+ * store, the attributes returned by a {@code Speechlet} are saved in the store, and only the
+ * {@value #TOKEN_ATTRIBUTE} attribute is sent to the Alexa service. When that attribute comes back
+ * with the next request of the session, the attributes are loaded from the store before the
+ * {@code Speechlet} is invoked. The entry of a session is removed once the session ends.
+ * </p>
+ *
+ * <p>
+ * Implementations must be thread-safe. The attributes passed to {@link #save(String, Map)} and
+ * returned by {@link #load(String)} belong to the caller, which may modify them afterwards, so
+ * implementations must keep a detached copy of the values, for instance serialized with
+ * {@link com.amazon.speech.json.SessionAttributeCodec#writeAttributes(Map)}.
+ * </p>
+ *
+ * @see InMemorySessionStore
+ */
+public interface SessionStore {
+    /**
+     * The name of the session attribute sent to the Alexa service in place of the attributes kept
+     * in the store.
+     */
+    String TOKEN_ATTRIBUTE = "_sessionStoreToken";
+
+    /**
+     * Returns the attributes saved for the provided session.
+     *
+     * @param sessionId
+     *            the session ID
+     * @return the attributes, or {@code null} if none are saved for the session
+     */
+    Map<String, Object> load(String sessionId);
+
+    /**
+     * Saves the attributes of the provided session, replacing any previously saved attributes.
+     *
+     * @param sessionId
+     *            the session ID
+     * @param attributes
+     *            the attributes to save
+     */
+    void save(String sessionId, Map<String, Object> attributes);
+
+    /**
+     * Removes the attributes saved for the provided session.
+     *
+     * @param sessionId
+     *            the session ID
+     */
+    void remove(String sessionId);
+}
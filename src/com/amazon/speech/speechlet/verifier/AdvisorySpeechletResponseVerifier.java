@@ -0,0 +1,22 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.verifier;
+
+/**
+ * A {@link SpeechletResponseVerifier} that only logs warnings about a response and never rejects
+ * it. Advisory verifiers can be sampled or run off the response path, as configured by a
+ * {@link com.amazon.speech.speechlet.SpeechletAdvisoryVerification}.
+ * <p>
+ * Implementations must not modify the response envelope or the session, and must be safe to call
+ * from a thread other than the one that handled the request.
+ */
+public interface AdvisorySpeechletResponseVerifier extends SpeechletResponseVerifier {
+}
@@ -17,13 +17,14 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.amazon.speech.json.SpeechletRequestPreScan;
 import com.amazon.speech.speechlet.Session;
 import com.amazon.speech.speechlet.SpeechletRequest;
 
 /**
  * Verifies whether or not individual application IDs are supported by the service.
  */
-public class ApplicationIdSpeechletRequestVerifier implements SpeechletRequestVerifier {
+public class ApplicationIdSpeechletRequestVerifier implements PreScanSpeechletRequestVerifier {
     private final Set<String> supportedApplicationIds;
     private static final Logger log = LoggerFactory
             .getLogger(ApplicationIdSpeechletRequestVerifier.class);
@@ -67,4 +68,19 @@ public class ApplicationIdSpeechletRequestVerifier implements SpeechletRequestVe
 
         return supportedApplicationIds.contains(session.getApplication().getApplicationId());
     }
+
+    /**
+     * Returns false if the application ID scanned from the request is not supported by this
+     * verifier. Returns true if the application ID could not be scanned, leaving the decision to
+     * {@link #verify(SpeechletRequest, Session)}.
+     *
+     * @param preScan
+     *            the values scanned from the request
+     * @return false if the scanned application ID is not supported, true otherwise
+     */
+    @Override
+    public boolean verify(SpeechletRequestPreScan preScan) {
+        return supportedApplicationIds.isEmpty() || preScan.getApplicationId() == null
+                || supportedApplicationIds.contains(preScan.getApplicationId());
+    }
 }
@@ -12,6 +12,8 @@ package com.amazon.speech.speechlet.verifier;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -32,13 +34,26 @@ import com.amazon.speech.ui.StandardCard;
  * <p>
  * Note: This verifier currently does not not enforce response checks and always returns true. The
  * primary purpose of this verifier is to log a warning in the app developer's runtime.
+ * <p>
+ * Image URLs are checked for the {@code https://} prefix before any parsing, and whether an HTTPS
+ * image URL is well formed is cached, since skills tend to send the same few image URLs over and
+ * over.
  */
-public class CardSpeechletResponseVerifier implements SpeechletResponseVerifier {
+public class CardSpeechletResponseVerifier implements AdvisorySpeechletResponseVerifier {
     private static final Logger log = LoggerFactory.getLogger(CardSpeechletResponseVerifier.class);
 
     private static final int MAX_CARD_SIZE = 8000;
     protected static final int MAX_URL_LENGTH = 2000;
     private static final String VALID_IMAGE_PROTOCOL = "https";
+    private static final String VALID_IMAGE_URL_PREFIX = VALID_IMAGE_PROTOCOL + "://";
+
+    /**
+     * Caches whether HTTPS image URLs are well formed, shared by all the verifiers. The cache is
+     * cleared when it reaches {@value #MAX_CACHED_IMAGE_URLS} entries.
+     */
+    private static final int MAX_CACHED_IMAGE_URLS = 1024;
+    private static final ConcurrentMap<String, Boolean> WELL_FORMED_IMAGE_URLS =
+            new ConcurrentHashMap<>();
 
     @Override
     public boolean verify(SpeechletResponseEnvelope responseEnvelope, Session session) {
@@ -134,7 +149,7 @@ public class CardSpeechletResponseVerifier implements SpeechletResponseVerifier
 
     /**
      * Verifies the protocol of the provided URL and it logs a warning if the protocol is different
-     * than {@value #VALID_IMAGE_PROTOCOL}.
+     * than {@value #VALID_IMAGE_PROTOCOL} or if the URL is malformed.
      *
      * @param imageUrlType
      *            the type of the image URL that is being verified
@@ -142,16 +157,36 @@ public class CardSpeechletResponseVerifier implements SpeechletResponseVerifier
      *            the URL to be checked
      */
     private void verifyProtocolImageUrl(String imageType, String imageUrl) {
-        try {
-            URL url = new URL(imageUrl);
-            String protocol = url.getProtocol();
-            if (!VALID_IMAGE_PROTOCOL.equals(protocol)) {
-                log.warn("{} with value {} is invalid for the image of the card of type "
-                        + "StandardCard since HTTPS is required", imageType, imageUrl);
+        if (!imageUrl.regionMatches(true, 0, VALID_IMAGE_URL_PREFIX, 0,
+                VALID_IMAGE_URL_PREFIX.length())) {
+            log.warn("{} with value {} is invalid for the image of the card of type "
+                    + "StandardCard since HTTPS is required", imageType, imageUrl);
+            return;
+        }
+
+        Boolean wellFormed = WELL_FORMED_IMAGE_URLS.get(imageUrl);
+        if (wellFormed == null) {
+            wellFormed = isWellFormed(imageUrl);
+            if (imageUrl.length() <= MAX_URL_LENGTH) {
+                if (WELL_FORMED_IMAGE_URLS.size() >= MAX_CACHED_IMAGE_URLS) {
+                    WELL_FORMED_IMAGE_URLS.clear();
+                }
+                WELL_FORMED_IMAGE_URLS.put(imageUrl, wellFormed);
             }
-        } catch (MalformedURLException e) {
+        }
+
+        if (!wellFormed) {
             log.warn("{} with value {} is malformed for the image of the card of type "
                     + "StandardCard", imageType, imageUrl);
         }
     }
+
+    private static boolean isWellFormed(String imageUrl) {
+        try {
+            new URL(imageUrl);
+            return true;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
 }
@@ -29,7 +29,7 @@ import com.amazon.speech.ui.SsmlOutputSpeech;
  * Note: This verifier currently does not not enforce response checks and always returns true. The
  * primary purpose of this verifier is to log a warning in the app developer's runtime.
  */
-public class OutputSpeechSpeechletResponseVerifier implements SpeechletResponseVerifier {
+public class OutputSpeechSpeechletResponseVerifier implements AdvisorySpeechletResponseVerifier {
     private static final Logger log = LoggerFactory
             .getLogger(OutputSpeechSpeechletResponseVerifier.class);
 
@@ -0,0 +1,35 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.verifier;
+
+import com.amazon.speech.json.SpeechletRequestPreScan;
+
+/**
+ * A {@link SpeechletRequestVerifier} that can also reject a request from the values extracted by a
+ * {@link SpeechletRequestPreScan}, before the request envelope is fully deserialized. Misrouted or
+ * stale requests are then rejected at the cost of a streaming scan instead of a full parse.
+ * <p>
+ * The pre-scan check is only an early filter: it should return false only for requests that
+ * {@link #verify(com.amazon.speech.speechlet.SpeechletRequest, com.amazon.speech.speechlet.Session)}
+ * would certainly reject, and return true whenever a scanned value is missing. The full
+ * verification still runs on every request that passes it.
+ */
+public interface PreScanSpeechletRequestVerifier extends SpeechletRequestVerifier {
+    /**
+     * Verifies the values scanned from a serialized request. Returns false if the request can be
+     * rejected without being deserialized, true otherwise.
+     *
+     * @param preScan
+     *            the values scanned from the request
+     * @return false if the request must be rejected, true otherwise
+     */
+    boolean verify(SpeechletRequestPreScan preScan);
+}
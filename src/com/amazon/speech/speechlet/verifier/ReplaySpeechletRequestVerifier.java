@@ -0,0 +1,336 @@
+/**
+    Copyright 2014-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+
+    Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance with the License. A copy of the License is located at
+
+        http://aws.amazon.com/apache2.0/
+
+    or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.amazon.speech.speechlet.verifier;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazon.speech.json.SpeechletRequestEnvelope;
+import com.amazon.speech.json.SpeechletRequestPreScan;
+import com.amazon.speech.speechlet.Session;
+import com.amazon.speech.speechlet.SpeechletRequest;
+import com.amazon.speech.speechlet.interceptor.SpeechletRequestInterceptorAdapter;
+
+/**
+ * Verifies that a request has not been seen before, rejecting replays of a properly signed request
+ * within the tolerance of the {@link TimestampSpeechletRequestVerifier}.
+ * <p>
+ * A request ID is only recorded once a response to the request has been serialized, from the
+ * {@link #afterSerialize(SpeechletRequestEnvelope, byte[])} interceptor hook: the
+ * {@link com.amazon.speech.speechlet.SpeechletRequestHandler} installs request verifiers that are
+ * also interceptors as interceptors. Retries of a request whose first attempt failed are therefore
+ * accepted, and so are copies of a request received while its first attempt is still in progress.
+ * <p>
+ * Seen request IDs are tracked in a fixed number of generations, each covering one tolerance
+ * period, so that a request ID is remembered for at least twice the tolerance: the whole window in
+ * which its timestamp is accepted. Each generation holds a Bloom filter, which answers most
+ * lookups for new request IDs, and a table of 64-bit request ID hashes used to confirm Bloom
+ * filter hits. Distinct request IDs with the same 64-bit hash are taken for replays, which is
+ * negligible at the expected number of requests. The oldest generation is dropped as a new one
+ * starts, so memory is fixed by the expected number of requests per tolerance period, regardless
+ * of uptime: at the default of {@value #DEFAULT_EXPECTED_REQUESTS}, each generation holds 262144
+ * hash slots (2 MiB) and 125 KB of Bloom filter bits, about 2.2 MB, or 6.6 MB for all of them.
+ * <p>
+ * When more requests than expected are received within a tolerance period, request IDs that no
+ * longer fit in the current generation are not tracked, and their replays are accepted. A warning
+ * is logged when this happens.
+ * <p>
+ * This verifier must be combined with a {@link TimestampSpeechletRequestVerifier} using the same
+ * tolerance. Since it rejects every request ID it has already seen, it cannot be combined with a
+ * {@link com.amazon.speech.speechlet.SpeechletRequestCoalescer}, which answers retries of a
+ * request instead of rejecting them: building a
+ * {@link com.amazon.speech.speechlet.SpeechletRequestHandler} with both throws an
+ * {@link IllegalStateException}.
+ */
+public class ReplaySpeechletRequestVerifier extends SpeechletRequestInterceptorAdapter implements
+        PreScanSpeechletRequestVerifier {
+    private static final Logger log = LoggerFactory
+            .getLogger(ReplaySpeechletRequestVerifier.class);
+
+    /**
+     * The default number of requests expected within a tolerance period.
+     */
+    public static final int DEFAULT_EXPECTED_REQUESTS = 100000;
+
+    private static final int MAX_EXPECTED_REQUESTS = 1 << 26;
+
+    /**
+     * The number of generations kept, covering between two and three tolerance periods.
+     */
+    private static final int GENERATIONS = 3;
+
+    /**
+     * The number of Bloom filter bits per expected request and the number of hash functions,
+     * giving a false positive rate of about 1%.
+     */
+    private static final int BLOOM_BITS_PER_REQUEST = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private final long generationMillis;
+    private final int expectedRequests;
+    private volatile Generation[] generations = new Generation[GENERATIONS];
+
+    /**
+     * Constructs a new replay verifier for the provided timestamp tolerance, expecting up to
+     * {@value #DEFAULT_EXPECTED_REQUESTS} requests within a tolerance period.
+     *
+     * @param tolerance
+     *            the tolerance of the timestamp verifier
+     * @param unit
+     *            the time unit of the {@code tolerance} parameter
+     */
+    public ReplaySpeechletRequestVerifier(long tolerance, TimeUnit unit) {
+        this(tolerance, unit, DEFAULT_EXPECTED_REQUESTS);
+    }
+
+    /**
+     * Constructs a new replay verifier for the provided timestamp tolerance.
+     *
+     * @param tolerance
+     *            the tolerance of the timestamp verifier
+     * @param unit
+     *            the time unit of the {@code tolerance} parameter
+     * @param expectedRequests
+     *            the number of requests expected within a tolerance period
+     */
+    public ReplaySpeechletRequestVerifier(long tolerance, TimeUnit unit, int expectedRequests) {
+        if (tolerance <= 0) {
+            throw new IllegalArgumentException("A positive tolerance is required");
+        }
+        if (expectedRequests <= 0 || expectedRequests > MAX_EXPECTED_REQUESTS) {
+            throw new IllegalArgumentException("The number of expected requests must be between 1 "
+                    + "and " + MAX_EXPECTED_REQUESTS);
+        }
+        generationMillis = unit.toMillis(tolerance);
+        this.expectedRequests = expectedRequests;
+        generations[0] = new Generation(System.currentTimeMillis(), expectedRequests);
+    }
+
+    /**
+     * Returns true if the request ID has not been seen before. This method will return false if
+     * {@link SpeechletRequest} or {@link SpeechletRequest#getRequestId()} is {@code null}.
+     *
+     * @param request
+     *            {@link SpeechletRequest} to validate
+     * @param session
+     *            {@link Session} context within which to validate the call
+     * @return true if the request ID has not been seen before, false otherwise
+     */
+    @Override
+    public boolean verify(SpeechletRequest request, Session session) {
+        if (request == null || request.getRequestId() == null) {
+            return false;
+        }
+
+        return verify(request.getRequestId());
+    }
+
+    /**
+     * Returns false if the request ID scanned from the request has already been seen. Returns true
+     * if the request ID could not be scanned, leaving the decision to
+     * {@link #verify(SpeechletRequest, Session)}.
+     *
+     * @param preScan
+     *            the values scanned from the request
+     * @return false if the scanned request ID has already been seen, true otherwise
+     */
+    @Override
+    public boolean verify(SpeechletRequestPreScan preScan) {
+        if (preScan.getRequestId() == null) {
+            return true;
+        }
+        return verify(preScan.getRequestId());
+    }
+
+    /**
+     * Records the ID of a request once its response has been serialized, so that later copies of
+     * the request are rejected.
+     *
+     * @param requestEnvelope
+     *            the request envelope
+     * @param serializedSpeechletResponse
+     *            the response bytes returned to the Alexa service
+     */
+    @Override
+    public void afterSerialize(SpeechletRequestEnvelope requestEnvelope,
+            byte[] serializedSpeechletResponse) {
+        final SpeechletRequest request = requestEnvelope.getRequest();
+        if (request == null || request.getRequestId() == null) {
+            return;
+        }
+
+        final long fingerprint = fingerprint(request.getRequestId());
+        if (currentGenerations()[0].add(fingerprint) == Generation.FULL) {
+            log.warn("More than {} requests received within a tolerance period, request with id "
+                    + "{} is not tracked for replays", expectedRequests, request.getRequestId());
+        }
+    }
+
+    private boolean verify(final String requestId) {
+        final long fingerprint = fingerprint(requestId);
+        for (Generation generation : currentGenerations()) {
+            if (generation != null && generation.contains(fingerprint)) {
+                return rejectReplay(requestId);
+            }
+        }
+        return true;
+    }
+
+    private static boolean rejectReplay(final String requestId) {
+        log.warn("Request with id {} has already been received, rejecting replay", requestId);
+        return false;
+    }
+
+    /**
+     * Returns the generations, newest first, after starting a new generation if the current one
+     * has covered a full tolerance period. Generations are shifted by the number of tolerance
+     * periods elapsed, so that idle periods also age the request IDs out.
+     */
+    private Generation[] currentGenerations() {
+        final long now = System.currentTimeMillis();
+        Generation[] current = generations;
+        if (now - current[0].start >= generationMillis) {
+            synchronized (this) {
+                current = generations;
+                if (now - current[0].start >= generationMillis) {
+                    final int shift =
+                            (int) Math.min(GENERATIONS, (now - current[0].start) / generationMillis);
+                    final Generation[] rotated = new Generation[GENERATIONS];
+                    rotated[0] = new Generation(now, expectedRequests);
+                    System.arraycopy(current, 0, rotated, shift, GENERATIONS - shift);
+                    generations = rotated;
+                    current = rotated;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns a 64-bit hash of the request ID, never 0 since 0 marks an empty fingerprint slot.
+     */
+    private static long fingerprint(final String requestId) {
+        // FNV-1a over the UTF-16 code units, followed by the MurmurHash3 finalizer.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < requestId.length(); i++) {
+            hash ^= requestId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash != 0) ? hash : 1;
+    }
+
+    /**
+     * The request IDs seen during one tolerance period.
+     */
+    private static final class Generation {
+        static final int ADDED = 0;
+        static final int PRESENT = 1;
+        static final int FULL = 2;
+
+        final long start;
+        private final AtomicLongArray bloom;
+        private final int bloomBits;
+        private final AtomicLongArray fingerprints;
+        private final int fingerprintMask;
+        private final AtomicInteger size = new AtomicInteger();
+        private final int maxSize;
+
+        Generation(final long start, final int expectedRequests) {
+            this.start = start;
+            bloomBits = (int) Math.min(Integer.MAX_VALUE - 63L,
+                    (long) expectedRequests * BLOOM_BITS_PER_REQUEST);
+            bloom = new AtomicLongArray((bloomBits + 63) >>> 6);
+            // A power of two of at least twice the expected requests, never filled beyond half,
+            // keeps probe chains short.
+            final int capacity = Integer.highestOneBit(Math.max(2, expectedRequests) - 1) << 2;
+            fingerprints = new AtomicLongArray(capacity);
+            fingerprintMask = capacity - 1;
+            maxSize = capacity >>> 1;
+        }
+
+        boolean contains(final long fingerprint) {
+            return mightContain(fingerprint) && findFingerprint(fingerprint);
+        }
+
+        int add(final long fingerprint) {
+            if (size.get() >= maxSize) {
+                return findFingerprint(fingerprint) ? PRESENT : FULL;
+            }
+
+            final int first = (int) (fingerprint >>> 32) & fingerprintMask;
+            for (int probe = 0; probe <= fingerprintMask; probe++) {
+                final int slot = (first + probe) & fingerprintMask;
+                long current = fingerprints.get(slot);
+                if (current == 0) {
+                    if (fingerprints.compareAndSet(slot, 0, fingerprint)) {
+                        size.incrementAndGet();
+                        addToBloom(fingerprint);
+                        return ADDED;
+                    }
+                    current = fingerprints.get(slot);
+                }
+                if (current == fingerprint) {
+                    return PRESENT;
+                }
+            }
+            return FULL;
+        }
+
+        private boolean findFingerprint(final long fingerprint) {
+            final int first = (int) (fingerprint >>> 32) & fingerprintMask;
+            for (int probe = 0; probe <= fingerprintMask; probe++) {
+                final long current = fingerprints.get((first + probe) & fingerprintMask);
+                if (current == fingerprint) {
+                    return true;
+                } else if (current == 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private boolean mightContain(final long fingerprint) {
+            final int hash1 = (int) fingerprint;
+            final int hash2 = (int) (fingerprint >>> 32);
+            for (int i = 1; i <= BLOOM_HASHES; i++) {
+                final int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % bloomBits;
+                if ((bloom.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addToBloom(final long fingerprint) {
+            final int hash1 = (int) fingerprint;
+            final int hash2 = (int) (fingerprint >>> 32);
+            for (int i = 1; i <= BLOOM_HASHES; i++) {
+                final int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % bloomBits;
+                final int word = bit >>> 6;
+                final long mask = 1L << bit;
+                long current = bloom.get(word);
+                while ((current & mask) == 0
+                        && !bloom.compareAndSet(word, current, current | mask)) {
+                    current = bloom.get(word);
+                }
+            }
+        }
+    }
+}
@@ -27,7 +27,7 @@ import com.amazon.speech.speechlet.Session;
  * Note: This verifier currently does not not enforce response checks and always returns true. The
  * primary purpose of this verifier is to log a warning in the app developer's runtime.
  */
-public class ResponseSizeSpeechletResponseVerifier implements SpeechletResponseVerifier {
+public class ResponseSizeSpeechletResponseVerifier implements AdvisorySpeechletResponseVerifier {
     private static final Logger log = LoggerFactory
             .getLogger(ResponseSizeSpeechletResponseVerifier.class);
 
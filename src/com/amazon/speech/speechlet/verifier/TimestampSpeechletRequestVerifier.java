@@ -15,6 +15,7 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.amazon.speech.json.SpeechletRequestPreScan;
 import com.amazon.speech.speechlet.Session;
 import com.amazon.speech.speechlet.SpeechletRequest;
 import com.amazon.speech.speechlet.SpeechletRequestHandler;
@@ -32,7 +33,7 @@ import com.amazon.speech.speechlet.SpeechletRequestHandler;
  *      href="https://developer.amazon.com/public/solutions/alexa/alexa-skills-kit/docs/developing-an-alexa-skill-as-a-web-service#Checking%20the%20Timestamp%20of%20the%20Request">
  *      Checking the Timestamp of the Request</a>
  */
-public class TimestampSpeechletRequestVerifier implements SpeechletRequestVerifier {
+public class TimestampSpeechletRequestVerifier implements PreScanSpeechletRequestVerifier {
     private static final Logger log = LoggerFactory.getLogger(SpeechletRequestHandler.class);
 
     private final long toleranceInMilliseconds;
@@ -52,10 +53,21 @@ public class TimestampSpeechletRequestVerifier implements SpeechletRequestVerifi
         toleranceInMilliseconds = unit.toMillis(tolerance);
     }
 
+    /**
+     * Returns the tolerance of this verifier.
+     *
+     * @param unit
+     *            the time unit of the returned tolerance
+     * @return the tolerance in the provided unit
+     */
+    public long getTolerance(TimeUnit unit) {
+        return unit.convert(toleranceInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Returns true if the provided date is inclusively within the verifier tolerance, either in the
      * past or future, of the current system time. This method will return false if
-     * {@link SpeechletRequest} or {@link SpeechletRequest#getTimestamp()} is {@code null}.
+     * {@link SpeechletRequest} is {@code null} or has no timestamp.
      * 
      * @param request
      *            {@link SpeechletRequest} to validate
@@ -65,16 +77,44 @@ public class TimestampSpeechletRequestVerifier implements SpeechletRequestVerifi
      */
     @Override
     public boolean verify(SpeechletRequest request, Session session) {
-        if (request == null || request.getTimestamp() == null) {
+        if (request == null || request.getTimestampMillis() == SpeechletRequest.NO_TIMESTAMP) {
             return false;
         }
 
-        long delta = Math.abs(System.currentTimeMillis() - request.getTimestamp().getTime());
+        long timestamp = request.getTimestampMillis();
+        long delta = Math.abs(System.currentTimeMillis() - timestamp);
         boolean withinTolerance = delta <= toleranceInMilliseconds;
 
         if (!withinTolerance) {
             log.warn("Request with id {} and timestamp {} failed timestamp validation with a "
-                    + "delta {}", request.getRequestId(), request.getTimestamp().getTime(), delta);
+                    + "delta {}", request.getRequestId(), timestamp, delta);
+        }
+
+        return withinTolerance;
+    }
+
+    /**
+     * Returns false if the timestamp scanned from the request is outside of the verifier
+     * tolerance. Returns true if the timestamp could not be scanned, leaving the decision to
+     * {@link #verify(SpeechletRequest, Session)}.
+     *
+     * @param preScan
+     *            the values scanned from the request
+     * @return false if the scanned timestamp is outside of the verifier tolerance, true otherwise
+     */
+    @Override
+    public boolean verify(SpeechletRequestPreScan preScan) {
+        long timestamp = preScan.getTimestampMillis();
+        if (timestamp == SpeechletRequest.NO_TIMESTAMP) {
+            return true;
+        }
+
+        long delta = Math.abs(System.currentTimeMillis() - timestamp);
+        boolean withinTolerance = delta <= toleranceInMilliseconds;
+
+        if (!withinTolerance) {
+            log.warn("Request with id {} and timestamp {} failed timestamp pre-scan validation "
+                    + "with a delta {}", preScan.getRequestId(), timestamp, delta);
         }
 
         return withinTolerance;